@@ -33,8 +33,7 @@
 
 package org.ros.android.app_chooser;
 
-import android.graphics.BitmapFactory;
-import android.graphics.Bitmap;
+import android.widget.AbsListView;
 import android.widget.BaseAdapter;
 import android.widget.ImageView;
 import android.widget.TextView;
@@ -43,69 +42,136 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.view.LayoutInflater;
 import org.ros.message.app_manager.App;
-import java.util.ArrayList;
+
+import java.util.List;
 
 public class AppAdapter extends BaseAdapter {
+  private static final int UNINSTALLED_ALPHA = 96;
   private Context context;
-  private ArrayList<App> apps;
-  private ArrayList<App> runningApps;
+  private LayoutInflater inflater;
+  private AppSnapshot snapshot;
+
+  /** Cached child views of an app_item cell. */
+  private static class ViewHolder {
+    ImageView icon;
+    TextView name;
+  }
 
-  public AppAdapter(Context c, ArrayList<App> apps, ArrayList<App> runningApps) {
+  public AppAdapter(Context c, AppSnapshot snapshot) {
     context = c;
-    this.apps = apps;
-    this.runningApps = runningApps;
+    inflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+    this.snapshot = snapshot;
+  }
+
+  /**
+   * Replace the adapter contents, returning what changed.  Must be run in
+   * the UI thread, followed by {@link #rebind}.
+   */
+  public AppListDiff update(AppSnapshot snapshot) {
+    AppListDiff diff = AppListDiff.compute(this.snapshot.getApps(), this.snapshot.getRunningIndex(),
+                                           snapshot.getApps(), snapshot.getRunningIndex());
+    this.snapshot = snapshot;
+    return diff;
+  }
+
+  /** The snapshot the grid is currently showing. */
+  public AppSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Refresh the grid for the given diff.  Layout changes go through
+   * notifyDataSetChanged(); in-place changes rebind only the affected
+   * cells that are currently on screen, the others are bound when they
+   * scroll into view.
+   */
+  public void rebind(AbsListView grid, AppListDiff diff) {
+    if (diff.isStructural()) {
+      notifyDataSetChanged();
+      return;
+    }
+    rebind(grid, diff.getChangedPositions());
+  }
+
+  /**
+   * Rebind the cells at the given positions that are currently on screen.
+   */
+  public void rebind(AbsListView grid, List<Integer> positions) {
+    int first = grid.getFirstVisiblePosition();
+    for (int position : positions) {
+      View child = grid.getChildAt(position - first);
+      if (child != null) {
+        getView(position, child, grid);
+      }
+    }
   }
 
   @Override
   public int getCount() {
-    if (apps == null) {
-      return 0;
-    }
-    return apps.size();
+    return snapshot.size();
   }
 
   @Override
-  public Object getItem(int position) {
-    return null;
+  public App getItem(int position) {
+    return snapshot.get(position);
   }
 
   @Override
   public long getItemId(int position) {
-    return 0;
+    App app = snapshot.get(position);
+    return app == null ? 0 : stableId(app.name);
   }
 
-  boolean isAppRunning(App app) {
-    if (app.name == null) {
-      return false;
+  @Override
+  public boolean hasStableIds() {
+    return true;
+  }
+
+  /**
+   * 64-bit FNV-1a hash of the app name, so the same robot app keeps the
+   * same id across list updates.
+   */
+  static long stableId(String name) {
+    if (name == null) {
+      return 0;
     }
-    for (App c : this.runningApps) {
-      if (app.name.equals(c.name)) {
-        return true;
-      }
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < name.length(); i++) {
+      hash ^= name.charAt(i);
+      hash *= 0x100000001b3L;
     }
-    return false;
+    return hash;
+  }
+
+  boolean isAppRunning(App app) {
+    return snapshot.isRunning(app);
   }
 
   /**
-   * Create a new View for each item referenced by the Adapter.
+   * Return a cell for the given item, reusing convertView when the grid
+   * hands one back.
    */
   @Override
   public View getView(int position, View convertView, ViewGroup parent) {
-    LayoutInflater inflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
-    // Using convert_view here seems to cause the wrong view to show
-    // up sometimes, so I'm always making new ones. (hersh: am I really sure of this??)
-    View view = inflater.inflate(R.layout.app_item, null);
-    App app = apps.get(position);
-    if( app.icon.data.length > 0 && app.icon.format != null &&
-        (app.icon.format.equals("jpeg") || app.icon.format.equals("png")) ) {
-      Bitmap iconBitmap = BitmapFactory.decodeByteArray( app.icon.data, 0, app.icon.data.length );
-      if( iconBitmap != null ) {
-        ImageView iv = (ImageView) view.findViewById(R.id.icon);
-        iv.setImageBitmap(iconBitmap);
-      }
+    View view = convertView;
+    ViewHolder holder;
+    if (view == null) {
+      view = inflater.inflate(R.layout.app_item, parent, false);
+      holder = new ViewHolder();
+      holder.icon = (ImageView) view.findViewById(R.id.icon);
+      holder.name = (TextView) view.findViewById(R.id.name);
+      view.setTag(holder);
+    } else {
+      holder = (ViewHolder) view.getTag();
     }
-    TextView tv = (TextView) view.findViewById(R.id.name);
-    tv.setText(app.display_name);
+    App app = snapshot.get(position);
+    // The loader resets the icon to the placeholder, so a recycled cell
+    // never shows the previous app's icon.
+    IconLoader.getInstance().load(holder.icon, app.icon.format, app.icon.data, R.drawable.icon);
+    // Dim apps whose android client is known not to be installed here.
+    Boolean installed = LaunchTemplates.getInstance().isInstalled(app);
+    holder.icon.setAlpha(Boolean.FALSE.equals(installed) ? UNINSTALLED_ALPHA : 255);
+    holder.name.setText(app.display_name);
     if (isAppRunning(app)) {
       view.setBackgroundResource(R.drawable.highlight);
     } else {
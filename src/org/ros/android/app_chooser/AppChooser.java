@@ -68,8 +68,13 @@ import android.content.ActivityNotFoundException;
 import android.content.Intent;
 import ros.android.activity.AppManager;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Show a grid of applications that a given robot is capable of, and launch
@@ -77,37 +82,85 @@ import java.util.List;
  */
 public class AppChooser extends RosAppActivity implements AppManager.TerminationCallback {
 
-  private ArrayList<App> availableAppsCache;
-  private ArrayList<App> runningAppsCache;
-  private long availableAppsCacheTime;
+  // Published on the UI thread, read from any thread.
+  private volatile AppSnapshot snapshot = AppSnapshot.EMPTY;
+  private final AppListCache appListCache = AppListCache.getInstance();
+  private AppListSnapshotStore snapshotStore;
+  private final LaunchTemplates launchTemplates = LaunchTemplates.getInstance();
+  private ClientPackageResolver packageResolver;
+  // Identical concurrent requests share one service call.
+  private final CoalescingAppManager.Holder calls = new CoalescingAppManager.Holder();
+  private volatile NodeBootstrap.Step firstLiveList;
   private TextView robotNameView;
+  private GridView gridview;
+  private AppAdapter appAdapter;
   private Button deactivate;
   private Button stopApps;
   private Button exchangeButton;
   private ProgressDialog progress;
   private ArrayList<AlertDialog> alerts;
+  // Details are the resolution keys of clients whose installation state
+  // changed.
+  private final UiDispatcher<AppFilter.Result, Set<String>> ui;
+  private final AppFilter appFilter = new AppFilter(AppLauncher.CLIENT_TYPE);
+  private final LaunchCoordinator launches;
+  // Size of the icon ImageView in res/layout/app_item.xml.
+  private static final int ICON_SIZE_DP = 80;
   private static final int DEV = 0;
   private static final int REG = 1;
   private static final int CLOSE_EXISTING = 0;
   private static final int MULTI_APP_DISABLED = 1;
   private int mode = REG;
+  // App to start once the running ones are stopped; UI thread only.
+  private App pendingLaunch;
 
   public AppChooser() {
-    availableAppsCache = new ArrayList<App>();
-    runningAppsCache = new ArrayList<App>();
-    availableAppsCacheTime = 0;
     alerts = new ArrayList<AlertDialog>();
+    ui = new UiDispatcher<AppFilter.Result, Set<String>>(new UiDispatcher.Sink<AppFilter.Result, Set<String>>() {
+        @Override
+        public void showStatus(String status) {
+          setStatus(status);
+        }
+
+        @Override
+        public void showAlert(String title, String message) {
+          AppChooser.this.showAlert(title, message);
+        }
+
+        @Override
+        public void showList(AppFilter.Result update) {
+          snapshot = new AppSnapshot(update);
+          updateAppList(snapshot);
+        }
+
+        @Override
+        public void showDetails(Set<String> changedClients) {
+          rebindClients(changedClients);
+        }
+      });
+    launches = new LaunchCoordinator(new LaunchCoordinator.Target() {
+        @Override
+        public void launch(App app) {
+          AppLauncher.launch(AppChooser.this, app, true);
+        }
+      });
   }
 
   private void stopProgress() {
-    final ProgressDialog temp = progress;
+    ProgressDialog temp = progress;
     progress = null;
-    if (temp != null) {
-      runOnUiThread(new Runnable() {
-          public void run() {
-            temp.dismiss();
-          }});
-    }
+    ui.dismiss(temp);
+  }
+
+  /** Must be run in UI thread. */
+  private void showAlert(String title, String message) {
+    AlertDialog d = new AlertDialog.Builder(this).setTitle(title).setCancelable(false)
+      .setMessage(message)
+      .setNeutralButton("Ok", new DialogInterface.OnClickListener() {
+          public void onClick(DialogInterface dialog, int which) { }})
+      .create();
+    alerts.add(d);
+    d.show();
   }
   
   @Override
@@ -121,6 +174,19 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
     setDashboardResource(R.id.top_bar);
     setMainWindowResource(R.layout.main);
     super.onCreate(savedInstanceState);
+    appListCache.setTtlMillis(getResources().getInteger(R.integer.app_list_cache_ttl_seconds) * 1000L);
+    snapshotStore = new AppListSnapshotStore(this,
+        (int) (ICON_SIZE_DP * getResources().getDisplayMetrics().density), appFilter);
+    // Fill the grid from the last session before the node exists; live data
+    // replaces it once the robot answers.
+    String key = robotKey();
+    AppFilter.Result saved = null;
+    if (appListCache.get(key) == null) {
+      saved = snapshotStore.load(key);
+      if (saved != null) {
+        appListCache.putStale(key, saved);
+      }
+    }
     robotNameView = (TextView) findViewById(R.id.robot_name_view);
 
     deactivate = (Button) findViewById(R.id.deactivate_robot);
@@ -129,20 +195,127 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
     stopApps.setVisibility(stopApps.GONE);
     exchangeButton = (Button) findViewById(R.id.exchange_button);
     exchangeButton.setVisibility(deactivate.GONE);
+
+    packageResolver = new ClientPackageResolver(this, new ClientPackageResolver.Listener() {
+        @Override
+        public void onClientsResolved(Set<String> changedKeys) {
+          ui.details(changedKeys);
+        }
+      });
+    packageResolver.register();
+    if (saved != null) {
+      // Taps on the stored list should find prepared intents too.
+      packageResolver.resolve(launchTemplates.compile(saved.getClientApps()));
+    }
+
+    gridview = (GridView) findViewById(R.id.gridview);
+    appAdapter = new AppAdapter(this, snapshot);
+    gridview.setAdapter(appAdapter);
+    registerForContextMenu(gridview);
+    gridview.setOnItemClickListener(new OnItemClickListener() {
+      @Override
+      public void onItemClick(AdapterView<?> parent, View v, int position, long id) {
+
+        requestLaunch(position);
+      }
+    });
+  }
+
+  @Override
+  protected void onDestroy() {
+    packageResolver.unregister();
+    super.onDestroy();
   }
 
   @Override
   protected void onResume() {
     super.onResume();
     setStatus("");
-    availableAppsCache = new ArrayList<App>();
-    runningAppsCache = new ArrayList<App>();
-    updateAppList(availableAppsCache, runningAppsCache);
-    if (appManager != null) {
+    showCachedAppList();
+    if (appManager != null && !appListCache.isFresh(robotKey())) {
       forceUpdate();
     }
   }
 
+  /**
+   * Key of the current robot in the app list cache, or null if there is no
+   * current robot yet.
+   */
+  private String robotKey() {
+    if (getCurrentRobot() == null || getCurrentRobot().getRobotId() == null) {
+      return null;
+    }
+    return getCurrentRobot().getRobotId().toString();
+  }
+
+  /**
+   * Launch the app at the given grid position, first offering to stop the
+   * running apps if the robot cannot run it next to them.  Must be run in
+   * UI thread.
+   */
+  private void requestLaunch(int position) {
+    // Use the snapshot the grid is showing, so the app and its running
+    // state match the cell that was picked.
+    AppSnapshot shown = appAdapter.getSnapshot();
+    App app = shown.get(position);
+    if (app == null) {
+      return;
+    }
+    // Without multi-app support the robot would refuse the start, so
+    // offer to stop the running apps first.  Until support is known,
+    // only the regular mode asks.
+    if (!shown.isRunning(app) && !shown.getRunningIndex().isEmpty()
+        && capabilities().needsStopBeforeStart(mode == REG)) {
+      pendingLaunch = app;
+      showDialog(CLOSE_EXISTING);
+      return;
+    }
+    launches.select(app);
+  }
+
+  private RobotCapabilities capabilities() {
+    return RobotCapabilities.forRobot(robotKey());
+  }
+
+  /**
+   * Rebind the cells of the apps owning the clients with the given
+   * resolution keys.  Must be run in UI thread.
+   */
+  private void rebindClients(Set<String> changedKeys) {
+    AppSnapshot shown = appAdapter.getSnapshot();
+    ArrayList<Integer> positions = new ArrayList<Integer>();
+    for (int position = 0; position < shown.size(); position++) {
+      for (ClientAppData client : launchTemplates.get(shown.get(position))) {
+        if (changedKeys.contains(client.getResolutionKey())) {
+          positions.add(position);
+          break;
+        }
+      }
+    }
+    appAdapter.rebind(gridview, positions);
+  }
+
+  /**
+   * Compute the content keys of the list's icons on the calling thread,
+   * so the UI thread finds already decoded icons without a worker round
+   * trip when it binds the new message's arrays.
+   */
+  private static void hashIcons(AppFilter.Result result) {
+    IconCache cache = IconCache.getInstance();
+    for (App app : result.getDisplayApps()) {
+      cache.keyFor(app.icon.format, app.icon.data);
+    }
+  }
+
+  /** Show the cached list of the current robot, or an empty grid. */
+  private void showCachedAppList() {
+    AppFilter.Result cached = appListCache.get(robotKey());
+    if (cached == null) {
+      cached = appFilter.apply(null, null);
+    }
+    ui.list(cached);
+  }
+
   /** 
    * Start/stop applications
    * @param app
@@ -152,13 +325,7 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
       safeSetStatus("Failed: appManager is not ready.");
       return;
     }
-    boolean running = false;
-    for (App i : runningAppsCache) {
-      if (i.name.equals(app.name)) {
-        running = true;
-      }
-    }
-   
+    boolean running = snapshot.isRunning(app);
 
     if (!running) {
       stopProgress();
@@ -170,14 +337,23 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
                           "Starting Application", "Starting " + app.display_name + "...", true, false);
             progress.setProgressStyle(ProgressDialog.STYLE_SPINNER);
           }});
-      appManager.startApp(app.name, new ServiceResponseListener<StartApp.Response>() {
+      LaunchMetrics.getInstance().mark(app.name, LaunchMetrics.TAP_TO_START_REQUESTED);
+      launches.starting(app.name);
+      calls.get(appManager).startApp(app.name, new ServiceResponseListener<StartApp.Response>() {
           @Override
           public void onSuccess(StartApp.Response message) {
+            launches.finished(app.name);
             if (message.started) {
+              LaunchMetrics.getInstance().mark(app.name, LaunchMetrics.TAP_TO_STARTED);
               safeSetStatus("Started");
             } else if (message.error_codes == StatusCodes.MULTIAPP_NOT_SUPPORTED) {
-              
-
+              capabilities().observeMultiAppRefused();
+              safeSetStatus(message.message);
+              runOnUiThread(new Runnable() {
+                  @Override
+                  public void run() {
+                    showDialog(MULTI_APP_DISABLED);
+                  }});
             } else {
               safeSetStatus(message.message);
             }
@@ -186,6 +362,7 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
           
           @Override
           public void onFailure(RemoteException e) {
+            launches.finished(app.name);
             safeSetStatus("Failed: " + e.getMessage());
             stopProgress();
           }});
@@ -220,50 +397,28 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
   }
 
   private void forceUpdate() {
-    appManager.listApps(new ServiceResponseListener<ListApps.Response>() {
+    calls.get(appManager).listApps(new ServiceResponseListener<ListApps.Response>() {
         @Override
         public void onSuccess(ListApps.Response message) {
-          availableAppsCache = message.available_apps;
-          runningAppsCache = message.running_apps;
-          ArrayList<String> runningAppsNames = new ArrayList<String>();
-          int i = 0;
-          for (i = 0; i<availableAppsCache.size(); i++) {
-            App item = availableAppsCache.get(i);
-            ArrayList<String> clients = new ArrayList<String>();
-            for (int j = 0; j< item.client_apps.size(); j++) {
-              clients.add(item.client_apps.get(j).client_type);
-            }
-            if (!clients.contains("android") && item.client_apps.size() != 0) {
-              availableAppsCache.remove(i);
-              i--;
-            }
-            
-            if (item.client_apps.size() == 0) {
-              Log.i("AppChooser", "Item name: " + item.name );
-              runningAppsNames.add(item.name);
-            }
+          AppFilter.Result result = appFilter.apply(message.available_apps, message.running_apps);
+          Log.i("RosAndroid", "ListApps.Response: " + result.getDisplayApps().size() + " apps");
+          packageResolver.resolve(launchTemplates.compile(result.getClientApps()));
+          String key = robotKey();
+          RobotCapabilities.forRobot(key).observeRunning(result.getRunningApps().size());
+          if (appListCache.put(key, result)) {
+            snapshotStore.save(key, result);
           }
-          Log.i("RosAndroid", "ListApps.Response: " + availableAppsCache.size() + " apps");
-          availableAppsCacheTime = System.currentTimeMillis();
-          runOnUiThread(new Runnable() {
-              @Override
-              public void run() {
-                updateAppList(availableAppsCache, runningAppsCache);
-              }});
+          hashIcons(result);
+          ui.list(result);
+          markFirstLiveList();
         }
         @Override
         public void onFailure(final RemoteException e) {
-          runOnUiThread(new Runnable() {
-              @Override
-              public void run() {
-                AlertDialog d = new AlertDialog.Builder(AppChooser.this).setTitle("Error!").setCancelable(false)
-                  .setMessage("Failed: cannot contact robot:" + e.toString())
-                  .setNeutralButton("Ok", new DialogInterface.OnClickListener() {
-                      public void onClick(DialogInterface dialog, int which) { }})
-                  .create();
-                alerts.add(d);
-                d.show();
-              }});
+          if (e instanceof RobotCallScheduler.CircuitOpenException) {
+            safeSetStatus("Robot not reachable, showing the last known apps.");
+            return;
+          }
+          ui.alert("Error!", "Failed: cannot contact robot:" + e.toString());
         }
       });
   }
@@ -273,58 +428,19 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
    * 
    * @param apps
    */
-  protected void updateAppList(final ArrayList<App> apps, final ArrayList<App> runningApps) {
-    Log.i("RosAndroid", "updating gridview");
-    GridView gridview = (GridView) findViewById(R.id.gridview);
-    gridview.setAdapter(new AppAdapter(AppChooser.this, apps, runningApps));
-    registerForContextMenu(gridview);
-    gridview.setOnItemClickListener(new OnItemClickListener() {
-      @Override
-      public void onItemClick(AdapterView<?> parent, View v, int position, long id) {
-
-        if (runningAppsCache.size() > 0) {
-          Log.i("AppChooser", "RunningAppsCache greater than zero.");
-        }
-        if ( mode == REG) {
-          Log.i("AppChooser", "MODE is REG" );
-        }
-
-        boolean running = false;
-        App app = availableAppsCache.get(position);
-        for (App i : runningAppsCache) {
-          if (i.name.equals(app.name)) {
-            running = true;
-          }
-        }
-
-
-        if (!running && (runningAppsCache.size() > 0 && mode == REG)) {
-          showDialog(CLOSE_EXISTING);
-          return;
-        }
-        AppLauncher.launch(AppChooser.this, apps.get(position), true);
-        
-      }
-    });
-    if (runningApps != null) {
-      if (runningApps.toArray().length != 0) {
-        //stopApps.setVisibility(stopApps.VISIBLE);
-      } else {
-        stopApps.setVisibility(stopApps.GONE);
-      }
+  protected void updateAppList(final AppSnapshot apps) {
+    Log.i("RosAndroid", "updating gridview to version " + apps.getVersion());
+    AppListDiff diff = appAdapter.update(apps);
+    appAdapter.rebind(gridview, diff);
+    Log.i("RosAndroid", "gridview " + diff);
+    if (apps.getRunningIndex().isEmpty()) {
+      stopApps.setVisibility(stopApps.GONE);
     }
-    Log.i("RosAndroid", "gridview updated");
+    Log.i("RosAndroid", "gridview updated, " + IconCache.getInstance());
   }
 
   @Override
   protected void onNodeCreate(Node node) {
-    availableAppsCache = new ArrayList<App>();
-    runningAppsCache = new ArrayList<App>();
-    runOnUiThread(new Runnable() {
-        @Override
-        public void run() {
-          updateAppList(availableAppsCache, runningAppsCache);
-        }});
     Log.i("RosAndroid", "AppChooser.onNodeCreate");
     try {
       super.onNodeCreate(node);
@@ -333,6 +449,7 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
       node = null;
       return;
     }
+    showCachedAppList();
 
     if (getCurrentRobot().getRobotId().getControlUri() != null) {
       runOnUiThread(new Runnable() {
@@ -355,46 +472,55 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
       appManager.addTerminationCallback(null, this);
     }
     
-    //Note, I've temporarily disabled caching.
-    if (System.currentTimeMillis() - availableAppsCacheTime >= 0 * 1000) {
-      Log.i("RosAndroid", "sending list apps request");
-      forceUpdate();
-    }
+    // The steps below don't depend on each other; run them side by side so
+    // the grid does not wait for the parameter server.
+    NodeBootstrap bootstrap = new NodeBootstrap("AppChooser");
+    firstLiveList = bootstrap.begin("first_live_list");
+    bootstrap.run("list_apps", new Runnable() {
+        @Override
+        public void run() {
+          if (!appListCache.isFresh(robotKey())) {
+            Log.i("RosAndroid", "sending list apps request");
+            forceUpdate();
+          } else {
+            firstLiveList.done();
+          }
+        }});
+    bootstrap.run("app_list_callback", new Runnable() {
+        @Override
+        public void run() {
+          addAppListCallback();
+        }});
+    final Node bootNode = node;
+    bootstrap.run("exchange_url_param", new Runnable() {
+        @Override
+        public void run() {
+          ParameterTree tree = bootNode.newParameterTree();
+          final boolean hasExchange = tree.has("robot/exchange_url");
+          runOnUiThread(new Runnable() {
+              @Override
+              public void run() {
+                exchangeButton.setVisibility(hasExchange ? stopApps.VISIBLE : stopApps.GONE);
+              }});
+        }});
+  }
 
+  private void addAppListCallback() {
     try {
       appManager.addAppListCallback(new MessageListener<AppList>() {
         @Override
         public void onNewMessage(AppList message) {
-          availableAppsCache = message.available_apps;
-          runningAppsCache = message.running_apps;
-          ArrayList<String> runningAppsNames = new ArrayList<String>();
-          int i = 0;
-          for (i = 0; i<availableAppsCache.size(); i++) {
-            App item = availableAppsCache.get(i);
-            ArrayList<String> clients = new ArrayList<String>();
-            for (int j = 0; j< item.client_apps.size(); j++) {
- 
-              clients.add(item.client_apps.get(j).client_type);
-            }
-
-            if (!clients.contains("android") && item.client_apps.size() != 0) {
-              availableAppsCache.remove(i);
-            }
-
-              if (item.client_apps.size() == 0) {
-              Log.i("AppChooser", "Item name: " + item.name );
-              runningAppsNames.add(item.name);
-            }
-
+          AppFilter.Result result = appFilter.apply(message.available_apps, message.running_apps);
+          Log.i("RosAndroid", "AppList: " + result.getDisplayApps().size() + " apps");
+          String key = robotKey();
+          RobotCapabilities.forRobot(key).observeRunning(result.getRunningApps().size());
+          if (appListCache.put(key, result)) {
+            packageResolver.resolve(launchTemplates.compile(result.getClientApps()));
+            snapshotStore.save(key, result);
+            hashIcons(result);
+            ui.list(result);
           }
-          Log.i("RosAndroid", "ListApps.Response: " + availableAppsCache.size() + " apps");
-          availableAppsCacheTime = System.currentTimeMillis();
-          runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-              updateAppList(availableAppsCache, runningAppsCache);
-            }
-          });
+          markFirstLiveList();
         }
 
       });
@@ -402,22 +528,13 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
       // TODO Auto-generated catch block
       e.printStackTrace();
     }
+  }
 
-    ParameterTree tree = node.newParameterTree();
-    if (tree.has("robot/exchange_url")) {
-      runOnUiThread(new Runnable() {
-          @Override
-          public void run() {
-            exchangeButton.setVisibility(stopApps.VISIBLE);
-          }});
-    } else {
-      runOnUiThread(new Runnable() {
-          @Override
-          public void run() {
-            exchangeButton.setVisibility(stopApps.GONE);
-          }});
+  private void markFirstLiveList() {
+    NodeBootstrap.Step step = firstLiveList;
+    if (step != null) {
+      step.done();
     }
-     
   }
 
   @Override
@@ -435,6 +552,12 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
   @Override
   protected void onPause() {
     super.onPause();
+    // A selection that has not fired yet is no longer what the user wants.
+    launches.cancel();
+    // Being covered right after starting a client activity means the
+    // client is now on screen.
+    LaunchMetrics.getInstance().finish(LaunchMetrics.TAP_TO_START_ACTIVITY,
+                                       LaunchMetrics.TAP_TO_CLIENT_VISIBLE);
     stopProgress();
     for (AlertDialog a : alerts) {
       a.dismiss();
@@ -471,53 +594,42 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
   public void stopApplicationsClicked(View view) {
     final AppChooser activity = this;
 
-    for (App i : runningAppsCache) {
-      Log.i("AppLauncher", "Sending intent.");
-      AppLauncher.launch(this, i, true);
-      }
-
     stopProgress();
     progress = ProgressDialog.show(activity,
                "Stopping Applications", "Stopping all applications...", true, false);
     progress.setProgressStyle(ProgressDialog.STYLE_SPINNER);
-    appManager.stopApp("*", new ServiceResponseListener<StopApp.Response>() {
+    calls.get(appManager).stopApp("*", new ServiceResponseListener<StopApp.Response>() {
       @Override
       public void onSuccess(StopApp.Response message) {
         if (!(message.stopped || message.error_code == StatusCodes.NOT_RUNNING)) {
-          final String errorMessage = message.message;
-          runOnUiThread(new Runnable() {
-              @Override
-              public void run() {
-                AlertDialog d = new AlertDialog.Builder(activity).setTitle("Error!").setCancelable(false)
-                  .setMessage("ERROR: " + errorMessage)
-                  .setNeutralButton("Ok", new DialogInterface.OnClickListener() {
-                      public void onClick(DialogInterface dialog, int which) { }})
-                  .create();
-                d.show();
-                alerts.add(d);
-              }});
+          ui.alert("Error!", "ERROR: " + message.message);
         }
         stopProgress();
       }
       @Override
       public void onFailure(final RemoteException e) {
         stopProgress();
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-              AlertDialog d = new AlertDialog.Builder(activity).setTitle("Error!").setCancelable(false)
-                .setMessage("Failed: cannot contact robot: " + e.toString())
-                .setNeutralButton("Ok", new DialogInterface.OnClickListener() {
-                    public void onClick(DialogInterface dialog, int which) { }})
-                .create();
-              d.show();
-              alerts.add(d);
-            }});
+        if (e instanceof RobotCallScheduler.CircuitOpenException) {
+          safeSetStatus("Failed: robot not reachable.");
+          return;
+        }
+        ui.alert("Error!", "Failed: cannot contact robot: " + e.toString());
       }
     });
     
   }
 
+  private void dumpLaunchMetrics() {
+    File file = new File(getFilesDir(), "launch_metrics.txt");
+    try {
+      LaunchMetrics.getInstance().dump(file);
+      setStatus("Launch metrics written to " + file);
+    } catch (IOException e) {
+      setStatus("Failed to write launch metrics: " + e.getMessage());
+    }
+    Log.i("RosAndroid", "launch metrics:\n" + LaunchMetrics.getInstance().summary());
+  }
+
   private void setStatus(String status_message) {
     TextView statusView = (TextView) findViewById(R.id.status_view);
     if (statusView != null) {
@@ -525,60 +637,78 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
     }
   }
 
-  private void safeSetStatus(final String statusMessage) {
-    final TextView statusView = (TextView) findViewById(R.id.status_view);
-    if (statusView != null) {
-      statusView.post(new Runnable() {
-
-        @Override
-        public void run() {
-          statusView.setText(statusMessage);
-        }
-      });
-    }
+  private void safeSetStatus(String statusMessage) {
+    ui.status(statusMessage);
   }
 
   public void stopApplication(App app) {
-      final AppChooser activity = this;
-      stopProgress();
-      progress = ProgressDialog.show(activity,
-               "Stopping Application", "Stopping application...", true, false);
-      progress.setProgressStyle(ProgressDialog.STYLE_SPINNER);
-      appManager.stopApp(app.name, new ServiceResponseListener<StopApp.Response>() {
-        @Override
-        public void onSuccess(StopApp.Response message) {
-          if (!(message.stopped || message.error_code == StatusCodes.NOT_RUNNING)) {
-            final String errorMessage = message.message;
+    stopApplications(Collections.singletonList(app), null);
+  }
+
+  /**
+   * Stop all given apps at once, behind a single progress dialog.  Errors
+   * are collected and shown together once every stop has been answered,
+   * If every app stopped, onComplete is then run in the UI thread if it is
+   * not null.
+   */
+  public void stopApplications(final List<App> apps, final Runnable onComplete) {
+    final int total = apps.size();
+    if (total == 0) {
+      if (onComplete != null) {
+        runOnUiThread(onComplete);
+      }
+      return;
+    }
+    stopProgress();
+    final ProgressDialog batchProgress = ProgressDialog.show(this, "Stopping Application",
+        total == 1 ? "Stopping application..." : "Stopping " + total + " applications...", true, false);
+    batchProgress.setProgressStyle(ProgressDialog.STYLE_SPINNER);
+    progress = batchProgress;
+    final AtomicInteger remaining = new AtomicInteger(total);
+    final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+    for (final App app : apps) {
+      calls.get(appManager).stopApp(app.name, new ServiceResponseListener<StopApp.Response>() {
+          @Override
+          public void onSuccess(StopApp.Response message) {
+            if (!(message.stopped || message.error_code == StatusCodes.NOT_RUNNING)) {
+              errors.add(app.display_name + ": " + message.message);
+            }
+            stopped();
+          }
+
+          @Override
+          public void onFailure(RemoteException e) {
+            errors.add(app.display_name + ": cannot contact robot: " + e.getMessage());
+            stopped();
+          }
+
+          private void stopped() {
+            final int left = remaining.decrementAndGet();
             runOnUiThread(new Runnable() {
                 @Override
                 public void run() {
-                  AlertDialog d = new AlertDialog.Builder(activity).setTitle("Error!").setCancelable(false)
-                    .setMessage("ERROR: " + errorMessage)
-                    .setNeutralButton("Ok", new DialogInterface.OnClickListener() {
-                        public void onClick(DialogInterface dialog, int which) { }})
-                    .create();
-                  d.show();
-                  alerts.add(d);
+                  if (left > 0) {
+                    batchProgress.setMessage("Stopping applications... " + (total - left) + " of " + total + " stopped");
+                    return;
+                  }
+                  if (progress == batchProgress) {
+                    progress = null;
+                  }
+                  batchProgress.dismiss();
+                  if (!errors.isEmpty()) {
+                    StringBuilder message = new StringBuilder("ERROR:");
+                    synchronized (errors) {
+                      for (String error : errors) {
+                        message.append("\n").append(error);
+                      }
+                    }
+                    showAlert("Error!", message.toString());
+                  } else if (onComplete != null) {
+                    onComplete.run();
+                  }
                 }});
-          }
-          stopProgress();
-        }
-        @Override
-        public void onFailure(final RemoteException e) {
-          stopProgress(); 
-          runOnUiThread(new Runnable() {
-            @Override
-              public void run() {
-                AlertDialog d = new AlertDialog.Builder(activity).setTitle("Error!").setCancelable(false)
-                  .setMessage("Failed: cannot contact robot: " + e.toString())
-                  .setNeutralButton("Ok", new DialogInterface.OnClickListener() {
-                      public void onClick(DialogInterface dialog, int which) { }})
-                  .create();
-                d.show();
-                alerts.add(d);
-              }});
-        }
-      });
+          }});
+    }
   }
 
   /*@Override
@@ -623,6 +753,9 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
     case R.id.dev:
       mode = DEV;
       return true;
+    case R.id.dump_metrics:
+      dumpLaunchMetrics();
+      return true;
     default:
       return super.onOptionsItemSelected(item);
     }
@@ -632,7 +765,11 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
   public void onCreateContextMenu(ContextMenu menu, View v, ContextMenuInfo menuInfo) {
     if (v.getId()==R.id.gridview) {
       AdapterView.AdapterContextMenuInfo info = (AdapterView.AdapterContextMenuInfo) menuInfo;
-      menu.setHeaderTitle(availableAppsCache.get(info.position).display_name);
+      App app = appAdapter.getItem(info.position);
+      if (app == null) {
+        return;
+      }
+      menu.setHeaderTitle(app.display_name);
       String[] menuItems = getResources().getStringArray(R.array.app_chooser_context_menu);
       for (int i = 0; i<menuItems.length; i++) {
         menu.add(Menu.NONE, i, i, menuItems[i]);
@@ -644,12 +781,14 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
   public boolean onContextItemSelected(MenuItem item) {
     AdapterView.AdapterContextMenuInfo info = (AdapterView.AdapterContextMenuInfo)item.getMenuInfo();
     int menuItemIndex = item.getItemId();
-    App app = availableAppsCache.get(info.position);
+    App app = appAdapter.getItem(info.position);
+    if (app == null) {
+      return false;
+    }
     switch (menuItemIndex) {
       case 0:
-        //This is a hack because App Chooser currently doesn't use 'isClientApp' parameter
-        onAppClicked(app, true);
-        AppLauncher.launch(AppChooser.this, app, true);
+        // AppLauncher.launch also starts the robot app, through onAppClicked.
+        requestLaunch(info.position);
         break;
       case 1:
         stopApplication(app);
@@ -664,10 +803,10 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
   protected Dialog onCreateDialog(int id) {
     //readRobotList();
     final Dialog dialog;
-    Button button;
+    AlertDialog.Builder builder;
     switch (id) {
       case CLOSE_EXISTING:
-        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder = new AlertDialog.Builder(this);
         builder.setTitle("Stop Current Application?");
         builder.setMessage("There is an application already running. You cannot run two applications at once. Would you like to stop the current application?");
         builder.setPositiveButton( "Stop Current", new DialogButtonClickHandler() );
@@ -675,10 +814,11 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
         dialog = builder.create();
         break;
       case MULTI_APP_DISABLED:
-        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder = new AlertDialog.Builder(this);
         builder.setTitle("Multi-App Disabled on Robot");
         builder.setMessage("The mode for running multiple apps is disabled on the robot. If you would like to enable it then you can change the arguments that the App Manager gets in its launch file.");
         builder.setNeutralButton( "Okay", new DialogButtonClickHandler());
+        dialog = builder.create();
         break;
       default:
         dialog = null;
@@ -693,12 +833,17 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
       switch( clicked ) {
         case DialogInterface.BUTTON_POSITIVE:
           removeDialog(CLOSE_EXISTING);
-          for (int i = 0; i < runningAppsCache.size(); i++) {
-            stopApplication(runningAppsCache.get(i));
-          }
+          final App next = pendingLaunch;
+          pendingLaunch = null;
+          stopApplications(snapshot.getRunningApps(), next == null ? null : new Runnable() {
+              @Override
+              public void run() {
+                launches.select(next);
+              }});
           break;
         case DialogInterface.BUTTON_NEGATIVE:
           removeDialog(CLOSE_EXISTING);
+          pendingLaunch = null;
           break;
         case DialogInterface.BUTTON_NEUTRAL:
           removeDialog(MULTI_APP_DISABLED);
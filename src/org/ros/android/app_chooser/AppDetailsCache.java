@@ -0,0 +1,151 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.graphics.Bitmap;
+import org.ros.message.app_manager.ExchangeApp;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide LRU cache of GetAppDetails answers: the description and the
+ * decoded icon of recently shown or prefetched exchange apps.  An entry is
+ * only valid for the version and latest_version the catalog listed when it
+ * was fetched; a catalog with other versions misses and drops it.
+ */
+public class AppDetailsCache {
+  private static final int MAX_ENTRIES = 32;
+  private static AppDetailsCache instance;
+
+  /** The details of one app version. */
+  public static final class Details {
+    private final String version;
+    private final String latestVersion;
+    private final String description;
+    private final Bitmap icon;
+
+    Details(String version, String latestVersion, String description, Bitmap icon) {
+      this.version = version;
+      this.latestVersion = latestVersion;
+      this.description = description;
+      this.icon = icon;
+    }
+
+    public String getDescription() {
+      return description;
+    }
+
+    /** The decoded icon, or null if the app has none that decodes. */
+    public Bitmap getIcon() {
+      return icon;
+    }
+
+    boolean matches(ExchangeApp app) {
+      return equal(version, app.version) && equal(latestVersion, app.latest_version);
+    }
+  }
+
+  private final LinkedHashMap<String, Details> details =
+      new LinkedHashMap<String, Details>(MAX_ENTRIES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Details> eldest) {
+          return size() > MAX_ENTRIES;
+        }
+      };
+  private int hits;
+  private int misses;
+
+  public static synchronized AppDetailsCache getInstance() {
+    if (instance == null) {
+      instance = new AppDetailsCache();
+    }
+    return instance;
+  }
+
+  /**
+   * The cached details of the given catalog entry, or null if there are
+   * none for its current versions.
+   */
+  public synchronized Details get(ExchangeCatalog.Entry entry) {
+    ExchangeApp app = entry.getApp();
+    Details cached = details.get(app.name);
+    if (cached != null && !cached.matches(app)) {
+      details.remove(app.name);
+      cached = null;
+    }
+    if (cached == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return cached;
+  }
+
+  /**
+   * Store a GetAppDetails answer for the catalog entry it was requested
+   * for; with a null entry the details are returned but not stored.  The
+   * icon is decoded downsampled to iconWidth x iconHeight, so call it off
+   * the UI thread.
+   */
+  public Details put(ExchangeCatalog.Entry entry, ExchangeApp answer, int iconWidth, int iconHeight) {
+    Bitmap icon = null;
+    if (answer.icon != null && IconCache.isDecodable(answer.icon.format, answer.icon.data)) {
+      icon = IconLoader.getInstance().getBitmap(answer.icon.format, answer.icon.data,
+                                                iconWidth, iconHeight);
+    }
+    ExchangeApp app = entry == null ? answer : entry.getApp();
+    Details fetched = new Details(app.version, app.latest_version,
+                                  answer.description == null ? "" : answer.description.toString(), icon);
+    if (entry != null) {
+      synchronized (this) {
+        details.put(app.name, fetched);
+      }
+    }
+    return fetched;
+  }
+
+  public synchronized void clear() {
+    details.clear();
+  }
+
+  private static boolean equal(String a, String b) {
+    return a == null ? b == null : a.equals(b);
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "entries=" + details.size() + ", hits=" + hits + ", misses=" + misses;
+  }
+}
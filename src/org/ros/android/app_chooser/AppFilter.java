@@ -0,0 +1,125 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import org.ros.message.app_manager.App;
+import org.ros.message.app_manager.ClientApp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Classifies the apps advertised by a robot in a single pass.  Apps with a
+ * client of the given type can be launched here, apps without any client
+ * run on the robot only, and apps that only have other kinds of clients
+ * are left out.  The input lists are never modified.
+ */
+public class AppFilter {
+  private final String clientType;
+
+  public AppFilter(String clientType) {
+    this.clientType = clientType;
+  }
+
+  /** Result of classifying one app list.  All lists are unmodifiable. */
+  public static class Result {
+    private final List<App> displayApps;
+    private final List<App> clientApps;
+    private final List<App> robotOnlyApps;
+    private final List<App> runningApps;
+    private final RunningAppIndex runningIndex;
+
+    private Result(List<App> displayApps, List<App> clientApps, List<App> robotOnlyApps,
+                   List<App> runningApps) {
+      this.displayApps = Collections.unmodifiableList(displayApps);
+      this.clientApps = Collections.unmodifiableList(clientApps);
+      this.robotOnlyApps = Collections.unmodifiableList(robotOnlyApps);
+      this.runningApps = Collections.unmodifiableList(runningApps);
+      this.runningIndex = new RunningAppIndex(runningApps);
+    }
+
+    /** Apps to show in the grid, in the order the robot listed them. */
+    public List<App> getDisplayApps() {
+      return displayApps;
+    }
+
+    /** Apps with a client of the filter's type. */
+    public List<App> getClientApps() {
+      return clientApps;
+    }
+
+    /** Apps without any client app. */
+    public List<App> getRobotOnlyApps() {
+      return robotOnlyApps;
+    }
+
+    public List<App> getRunningApps() {
+      return runningApps;
+    }
+
+    public RunningAppIndex getRunningIndex() {
+      return runningIndex;
+    }
+  }
+
+  public Result apply(List<App> available, List<App> running) {
+    int n = available == null ? 0 : available.size();
+    ArrayList<App> display = new ArrayList<App>(n);
+    ArrayList<App> client = new ArrayList<App>(n);
+    ArrayList<App> robotOnly = new ArrayList<App>();
+    for (int i = 0; i < n; i++) {
+      App app = available.get(i);
+      if (app.client_apps.size() == 0) {
+        robotOnly.add(app);
+        display.add(app);
+      } else if (hasClient(app)) {
+        client.add(app);
+        display.add(app);
+      }
+    }
+    ArrayList<App> runningCopy = running == null ? new ArrayList<App>() : new ArrayList<App>(running);
+    return new Result(display, client, robotOnly, runningCopy);
+  }
+
+  private boolean hasClient(App app) {
+    List<ClientApp> clients = app.client_apps;
+    for (int j = 0; j < clients.size(); j++) {
+      if (clientType.equals(clients.get(j).client_type)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
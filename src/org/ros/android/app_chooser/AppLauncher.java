@@ -40,14 +40,13 @@ import android.content.DialogInterface;
 import android.content.Intent;
 import android.util.Log;
 import org.ros.message.app_manager.App;
-import org.ros.message.app_manager.ClientApp;
 import ros.android.activity.AppManager;
 import android.net.Uri;
 
-import java.util.ArrayList;
+import java.util.List;
 
 public class AppLauncher {
-  static private final String CLIENT_TYPE = "android";
+  static final String CLIENT_TYPE = "android";
 
   /** Launch a client app for the given robot app. */
   static public void launch(final Activity parentActivity, App app, boolean start) {
@@ -56,7 +55,17 @@ public class AppLauncher {
       parentActivity.finishActivity(0);
       return;
     }
-    ArrayList<ClientAppData> android_apps = new ArrayList<ClientAppData>();
+    LaunchMetrics metrics = LaunchMetrics.getInstance();
+    metrics.mark(app.name, LaunchMetrics.TAP_TO_LAUNCH);
+
+    // Don't ask the robot to start an app whose client we already know
+    // cannot be launched here.
+    if (Boolean.FALSE.equals(LaunchTemplates.getInstance().isInstalled(app))) {
+      List<ClientAppData> clients = LaunchTemplates.getInstance().get(app);
+      Log.i("RosAndroid", "client for " + app.name + " is not installed, not starting it.");
+      showNotInstalledDialog(parentActivity, installPackage(clients.get(clients.size() - 1).getAction()));
+      return;
+    }
 
     if (parentActivity instanceof AppChooser) {
       ((AppChooser)parentActivity).onAppClicked(app, app.client_apps.size() > 0);
@@ -75,13 +84,8 @@ public class AppLauncher {
     Log.i("RosAndroid", "launching robot app " + app.name + ".  Found " + app.client_apps.size()
         + " client apps.");
 
-    // Loop over all possible client apps to find the android ones.
-    for (int i = 0; i < app.client_apps.size(); i++) {
-      ClientApp client_app = app.client_apps.get(i);
-      if (client_app.client_type != null && client_app.client_type.equals(CLIENT_TYPE)) {
-        android_apps.add(new ClientAppData(client_app));
-      }
-    }
+    // The android client apps, compiled when the app list was received.
+    List<ClientAppData> android_apps = LaunchTemplates.getInstance().get(app);
 
     Log.i("RosAndroid", "launching robot app " + app.name + ".  Found " + android_apps.size()
         + " android apps.");
@@ -89,7 +93,7 @@ public class AppLauncher {
     // TODO: filter out android apps which are not appropriate for
     // this device by looking at specific entries in the manager_data_
     // map of each app in android_apps.
-    ArrayList<ClientAppData> appropriateAndroidApps = android_apps;
+    List<ClientAppData> appropriateAndroidApps = android_apps;
 
 
     // TODO: support multiple android apps
@@ -114,10 +118,12 @@ public class AppLauncher {
       ClientAppData appData = appropriateAndroidApps.get(i);
       Intent intent = appData.createIntent(parentActivity.getApplicationContext(), true);
       intent.putExtra(AppManager.PACKAGE + ".robot_app_name", app.name);
+      metrics.mark(app.name, LaunchMetrics.TAP_TO_INTENT);
       try {
         className = intent.getAction();
         Log.i("RosAndroid", "trying to startActivity( action: " + intent.getAction() + " )");
         parentActivity.startActivityForResult(intent, 0);
+        metrics.mark(app.name, LaunchMetrics.TAP_TO_START_ACTIVITY);
         return;
       } catch (ActivityNotFoundException e) {
         Log.i("RosAndroid", "activity not found for action: " + intent.getAction());
@@ -132,6 +138,7 @@ public class AppLauncher {
         className = intent.getAction();
         Log.i("RosAndroid", "trying to startActivity( action: " + intent.getAction() + " )");
         parentActivity.startActivityForResult(intent, 0);
+        metrics.mark(app.name, LaunchMetrics.TAP_TO_START_ACTIVITY);
         return;
     } catch (ActivityNotFoundException e) {
         Log.i("RosAndroid", "activity not found for action: " + intent.getAction());
@@ -139,8 +146,18 @@ public class AppLauncher {
     }
     
 
-    final String installPackage = className.substring(0, className.lastIndexOf("."));
+    showNotInstalledDialog(parentActivity, installPackage(className));
+  }
+
+  /** The market package of a client app, derived from its intent action. */
+  static private String installPackage(String action) {
+    if (action == null || action.lastIndexOf(".") < 0) {
+      return action;
+    }
+    return action.substring(0, action.lastIndexOf("."));
+  }
 
+  static private void showNotInstalledDialog(final Activity parentActivity, final String installPackage) {
     Log.i("RosAndroid", "showing not-installed dialog.");
 
     // TODO:
@@ -0,0 +1,107 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+/**
+ * Holds the last filtered app list of one robot, so the grid can be drawn
+ * right away and refreshed in the background.  An entry is fresh for the
+ * configured time to live; after that it is still served, but callers
+ * should ask the robot for a new list.
+ */
+public class AppListCache {
+  private static AppListCache instance;
+
+  private long ttlMillis;
+  private String robotKey;
+  private AppFilter.Result result;
+  private long timestamp;
+
+  public AppListCache(long ttlMillis) {
+    this.ttlMillis = ttlMillis;
+  }
+
+  public static synchronized AppListCache getInstance() {
+    if (instance == null) {
+      instance = new AppListCache(30 * 1000);
+    }
+    return instance;
+  }
+
+  public synchronized void setTtlMillis(long ttlMillis) {
+    this.ttlMillis = ttlMillis;
+  }
+
+  /** Return the cached list for the robot, fresh or not, or null. */
+  public synchronized AppFilter.Result get(String robotKey) {
+    if (robotKey == null || !robotKey.equals(this.robotKey)) {
+      return null;
+    }
+    return result;
+  }
+
+  public synchronized boolean isFresh(String robotKey) {
+    return get(robotKey) != null && timestamp != 0
+        && System.currentTimeMillis() - timestamp < ttlMillis;
+  }
+
+  /**
+   * Store a list just received from the robot.  Returns true if it differs
+   * from the cached one, false if it only confirmed the cached list.
+   */
+  public synchronized boolean put(String robotKey, AppFilter.Result result) {
+    if (robotKey == null) {
+      return true;
+    }
+    AppFilter.Result old = get(robotKey);
+    boolean changed = old == null || !AppListDiff.compute(old.getDisplayApps(), old.getRunningIndex(),
+        result.getDisplayApps(), result.getRunningIndex()).isEmpty();
+    this.robotKey = robotKey;
+    this.result = result;
+    timestamp = System.currentTimeMillis();
+    return changed;
+  }
+
+  /**
+   * Seed the cache with a list that did not come from the robot just now,
+   * e.g. one loaded from disk.  It is served but never considered fresh.
+   */
+  public synchronized void putStale(String robotKey, AppFilter.Result result) {
+    if (robotKey == null) {
+      return;
+    }
+    this.robotKey = robotKey;
+    this.result = result;
+    timestamp = 0;
+  }
+}
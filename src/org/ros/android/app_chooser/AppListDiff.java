@@ -0,0 +1,143 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import org.ros.message.app_manager.App;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Difference between two app grid states, keyed by App.name.  Inserts,
+ * removes and moves change the layout of the grid; running-state and
+ * content changes of an app that kept its position only need that one cell
+ * to be rebound.
+ */
+public class AppListDiff {
+  private final List<String> inserted = new ArrayList<String>();
+  private final List<String> removed = new ArrayList<String>();
+  private final List<String> moved = new ArrayList<String>();
+  private final List<Integer> changedPositions = new ArrayList<Integer>();
+
+  private AppListDiff() {
+  }
+
+  public static AppListDiff compute(List<App> oldApps, RunningAppIndex oldRunning,
+                                    List<App> newApps, RunningAppIndex newRunning) {
+    AppListDiff diff = new AppListDiff();
+    HashMap<String, Integer> oldPositions = new HashMap<String, Integer>();
+    if (oldApps != null) {
+      for (int i = 0; i < oldApps.size(); i++) {
+        oldPositions.put(oldApps.get(i).name, i);
+      }
+    }
+    HashSet<String> newNames = new HashSet<String>();
+    if (newApps != null) {
+      for (int i = 0; i < newApps.size(); i++) {
+        App app = newApps.get(i);
+        newNames.add(app.name);
+        Integer oldPosition = oldPositions.get(app.name);
+        if (oldPosition == null) {
+          diff.inserted.add(app.name);
+        } else if (oldPosition != i) {
+          diff.moved.add(app.name);
+        } else if (oldRunning.contains(app.name) != newRunning.contains(app.name)
+                   || !sameContent(oldApps.get(i), app)) {
+          diff.changedPositions.add(i);
+        }
+      }
+    }
+    for (String name : oldPositions.keySet()) {
+      if (!newNames.contains(name)) {
+        diff.removed.add(name);
+      }
+    }
+    return diff;
+  }
+
+  private static boolean sameContent(App a, App b) {
+    if (a == b) {
+      return true;
+    }
+    if (!equal(a.display_name, b.display_name) || !equal(a.icon.format, b.icon.format)) {
+      return false;
+    }
+    if (Arrays.equals(a.icon.data, b.icon.data)) {
+      return true;
+    }
+    // A stored thumbnail differs from its original byte for byte.
+    IconCache cache = IconCache.getInstance();
+    return equal(cache.originalKeyFor(a.icon.format, a.icon.data),
+                 cache.originalKeyFor(b.icon.format, b.icon.data));
+  }
+
+  private static boolean equal(Object a, Object b) {
+    return a == null ? b == null : a.equals(b);
+  }
+
+  /** True if cells were inserted, removed or moved. */
+  public boolean isStructural() {
+    return !inserted.isEmpty() || !removed.isEmpty() || !moved.isEmpty();
+  }
+
+  public boolean isEmpty() {
+    return !isStructural() && changedPositions.isEmpty();
+  }
+
+  public List<String> getInserted() {
+    return inserted;
+  }
+
+  public List<String> getRemoved() {
+    return removed;
+  }
+
+  public List<String> getMoved() {
+    return moved;
+  }
+
+  /** Positions in the new list whose cell needs to be rebound in place. */
+  public List<Integer> getChangedPositions() {
+    return changedPositions;
+  }
+
+  @Override
+  public String toString() {
+    return "AppListDiff[inserted=" + inserted.size() + ", removed=" + removed.size()
+        + ", moved=" + moved.size() + ", changed=" + changedPositions.size() + "]";
+  }
+}
@@ -0,0 +1,281 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+import org.ros.message.app_manager.App;
+import org.ros.message.app_manager.ClientApp;
+import org.ros.message.app_manager.KeyValue;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Persists the last app list seen for each robot, with icons reduced to
+ * grid cell size, so the grid can be filled in before the ROS node is up.
+ * Snapshots are written on a background thread and only ever replace a
+ * complete file.
+ */
+public class AppListSnapshotStore {
+  private static final String TAG = "AppListSnapshotStore";
+  private static final int MAGIC = 0x52414c53;
+  private static final int VERSION = 2;
+
+  private final File directory;
+  private final int thumbnailSize;
+  private final AppFilter filter;
+  // Shared by all stores.  Writes go to a temporary file first, so a
+  // daemon thread is safe.
+  private static final ExecutorService writer =
+      Executors.newSingleThreadExecutor(new DaemonThreadFactory(TAG));
+
+  public AppListSnapshotStore(Context context, int thumbnailSize, AppFilter filter) {
+    directory = context.getCacheDir();
+    this.thumbnailSize = thumbnailSize;
+    this.filter = filter;
+  }
+
+  private File fileFor(String robotKey) {
+    return new File(directory, "app_list_" + Integer.toHexString(robotKey.hashCode()) + ".snapshot");
+  }
+
+  /** Read the snapshot for the robot, or return null if there is none. */
+  public AppFilter.Result load(String robotKey) {
+    if (robotKey == null) {
+      return null;
+    }
+    File file = fileFor(robotKey);
+    if (!file.exists()) {
+      return null;
+    }
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if (in.readInt() != MAGIC || in.readInt() != VERSION || !robotKey.equals(in.readUTF())) {
+        return null;
+      }
+      int nApps = in.readInt();
+      ArrayList<App> apps = new ArrayList<App>(nApps);
+      HashMap<String, App> byName = new HashMap<String, App>();
+      for (int i = 0; i < nApps; i++) {
+        App app = readApp(in);
+        apps.add(app);
+        byName.put(app.name, app);
+      }
+      int nRunning = in.readInt();
+      ArrayList<App> running = new ArrayList<App>(nRunning);
+      for (int i = 0; i < nRunning; i++) {
+        String name = readString(in);
+        App app = byName.get(name);
+        if (app == null) {
+          app = new App();
+          app.name = name;
+        }
+        running.add(app);
+      }
+      Log.i(TAG, "loaded " + nApps + " apps for " + robotKey);
+      return filter.apply(apps, running);
+    } catch (IOException e) {
+      Log.w(TAG, "could not read " + file + ": " + e.getMessage());
+      return null;
+    } finally {
+      close(in);
+    }
+  }
+
+  /** Write the snapshot for the robot in the background. */
+  public void save(final String robotKey, final AppFilter.Result result) {
+    if (robotKey == null) {
+      return;
+    }
+    writer.execute(new Runnable() {
+        @Override
+        public void run() {
+          write(robotKey, result);
+        }});
+  }
+
+  private void write(String robotKey, AppFilter.Result result) {
+    File file = fileFor(robotKey);
+    File tmp = new File(file.getPath() + ".tmp");
+    DataOutputStream out = null;
+    try {
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeUTF(robotKey);
+      List<App> apps = result.getDisplayApps();
+      out.writeInt(apps.size());
+      for (App app : apps) {
+        writeApp(out, app);
+      }
+      List<App> running = result.getRunningApps();
+      out.writeInt(running.size());
+      for (App app : running) {
+        writeString(out, app.name);
+      }
+      out.close();
+      out = null;
+      if (!tmp.renameTo(file)) {
+        Log.w(TAG, "could not replace " + file);
+      }
+    } catch (IOException e) {
+      Log.w(TAG, "could not write " + file + ": " + e.getMessage());
+    } finally {
+      close(out);
+      tmp.delete();
+    }
+  }
+
+  private void writeApp(DataOutputStream out, App app) throws IOException {
+    writeString(out, app.name);
+    writeString(out, app.display_name);
+    writeString(out, app.icon.format);
+    writeString(out, IconCache.getInstance().originalKeyFor(app.icon.format, app.icon.data));
+    byte[] icon = thumbnail(app.icon.format, app.icon.data);
+    out.writeInt(icon.length);
+    out.write(icon);
+    out.writeInt(app.client_apps.size());
+    for (ClientApp client : app.client_apps) {
+      writeString(out, client.client_type);
+      writeKeyValues(out, client.manager_data);
+      writeKeyValues(out, client.app_data);
+    }
+  }
+
+  private App readApp(DataInputStream in) throws IOException {
+    App app = new App();
+    app.name = readString(in);
+    app.display_name = readString(in);
+    app.icon.format = readString(in);
+    String originalKey = readString(in);
+    byte[] icon = new byte[in.readInt()];
+    in.readFully(icon);
+    app.icon.data = icon;
+    // Lets the first live list match the thumbnail against its original.
+    IconCache.getInstance().registerStandIn(icon, originalKey);
+    int nClients = in.readInt();
+    for (int i = 0; i < nClients; i++) {
+      ClientApp client = new ClientApp();
+      client.client_type = readString(in);
+      readKeyValues(in, client.manager_data);
+      readKeyValues(in, client.app_data);
+      app.client_apps.add(client);
+    }
+    return app;
+  }
+
+  /**
+   * Return the icon downsampled to the grid cell size, or the original
+   * bytes if it is already small enough or cannot be decoded.
+   */
+  private byte[] thumbnail(String format, byte[] data) {
+    if (!IconCache.isDecodable(format, data)) {
+      return data == null ? new byte[0] : data;
+    }
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inJustDecodeBounds = true;
+    BitmapFactory.decodeByteArray(data, 0, data.length, options);
+    int sample = IconLoader.sampleSize(options.outWidth, options.outHeight, thumbnailSize, thumbnailSize);
+    if (sample == 1) {
+      return data;
+    }
+    options.inJustDecodeBounds = false;
+    options.inSampleSize = sample;
+    Bitmap bitmap = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+    if (bitmap == null) {
+      return data;
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Bitmap.CompressFormat compressFormat =
+        format.equals("png") ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG;
+    bitmap.compress(compressFormat, 90, bytes);
+    bitmap.recycle();
+    return bytes.toByteArray();
+  }
+
+  private static void writeKeyValues(DataOutputStream out, List<KeyValue> kvl) throws IOException {
+    out.writeInt(kvl.size());
+    for (KeyValue kv : kvl) {
+      writeString(out, kv.key);
+      writeString(out, kv.value);
+    }
+  }
+
+  private static void readKeyValues(DataInputStream in, List<KeyValue> kvl) throws IOException {
+    int n = in.readInt();
+    for (int i = 0; i < n; i++) {
+      KeyValue kv = new KeyValue();
+      kv.key = readString(in);
+      kv.value = readString(in);
+      kvl.add(kv);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    out.writeBoolean(s != null);
+    if (s != null) {
+      out.writeUTF(s);
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  private static void close(Closeable c) {
+    if (c != null) {
+      try {
+        c.close();
+      } catch (IOException e) {
+      }
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import org.ros.message.app_manager.App;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable, versioned view of a robot's apps: the apps shown in the grid
+ * together with the set of running apps they were listed with.  A new
+ * snapshot is published for every applied app list, so readers on any
+ * thread always see a matching pair without locking.
+ */
+public final class AppSnapshot {
+  private static final AtomicLong versions = new AtomicLong();
+
+  public static final AppSnapshot EMPTY = new AppSnapshot();
+
+  private final List<App> apps;
+  private final List<App> runningApps;
+  private final RunningAppIndex runningIndex;
+  private final long version;
+
+  private AppSnapshot() {
+    apps = Collections.emptyList();
+    runningApps = Collections.emptyList();
+    runningIndex = RunningAppIndex.EMPTY;
+    version = 0;
+  }
+
+  public AppSnapshot(AppFilter.Result result) {
+    apps = result.getDisplayApps();
+    runningApps = result.getRunningApps();
+    runningIndex = result.getRunningIndex();
+    version = versions.incrementAndGet();
+  }
+
+  public List<App> getApps() {
+    return apps;
+  }
+
+  public List<App> getRunningApps() {
+    return runningApps;
+  }
+
+  public RunningAppIndex getRunningIndex() {
+    return runningIndex;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public int size() {
+    return apps.size();
+  }
+
+  /** The app at the given grid position, or null if out of range. */
+  public App get(int position) {
+    if (position < 0 || position >= apps.size()) {
+      return null;
+    }
+    return apps.get(position);
+  }
+
+  public boolean isRunning(App app) {
+    return runningIndex.contains(app);
+  }
+}
@@ -39,6 +39,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.lang.String;
 import android.content.Context;
+import android.os.Bundle;
 import android.util.Log;
 
 import org.ros.message.app_manager.ClientApp;
@@ -47,80 +48,139 @@ import org.ros.message.app_manager.KeyValue;
 /**
  * Convenience class which populates HashMaps with manager_data and app_data
  * from the corresponding KeyValue arrays in the ClientApp message.
+ *
+ * Everything needed to build a launch intent is worked out in the
+ * constructor and in {@link #resolve}, so {@link #createIntent} only
+ * copies precomputed values.
  */
 public class ClientAppData {
   public HashMap<String, String> managerData;
   public List<KeyValue> appData;
 
+  private final String action;
+  private final String launchPackage;
+  private final String category;
+  private final String type;
+  private final Bundle extras;
+  private boolean resolved;
+  private boolean installed;
+  private Intent packageLaunchIntent;
+
   public ClientAppData(ClientApp clientApp) {
     managerData = keyValueListToMap(clientApp.manager_data);
     appData = clientApp.app_data;
+    action = managerData.get("intent-action");
+    launchPackage = packageOf(action);
+    category = managerData.get("intent-category");
+    type = managerData.get("intent-type");
+    extras = new Bundle();
+    // Copy all app data to "extra" data in the intent.
+    for (int i = 0; i < appData.size(); i++) {
+      KeyValue kv = appData.get(i);
+      extras.putString(kv.key, kv.value);
+    }
+  }
+
+  /**
+   * The package a client app is expected to live in: the first three
+   * components of its intent action.
+   */
+  private static String packageOf(String action) {
+    if (action == null) {
+      return null;
+    }
+    int end = -1;
+    for (int i = 0; i < 3; i++) {
+      end = action.indexOf('.', end + 1);
+      if (end < 0) {
+        return i == 2 ? action : null;
+      }
+    }
+    return action.substring(0, end);
+  }
+
+  public String getAction() {
+    return action;
+  }
+
+  public String getLaunchPackage() {
+    return launchPackage;
+  }
+
+  /**
+   * Identifies what the ClientPackageResolver checks for this client: two
+   * clients with the same key resolve the same way.
+   */
+  public String getResolutionKey() {
+    return launchPackage + "|" + action + "|" + category + "|" + type;
+  }
+
+  /**
+   * Take over the resolution of an earlier compiled copy of this client, so
+   * a recompiled list keeps what is known until it is resolved again.
+   */
+  public void copyResolution(ClientAppData previous) {
+    Intent launchIntent;
+    boolean wasInstalled;
+    synchronized (previous) {
+      if (!previous.resolved) {
+        return;
+      }
+      launchIntent = previous.packageLaunchIntent;
+      wasInstalled = previous.installed;
+    }
+    setResolution(launchIntent, wasInstalled);
+  }
+
+  /**
+   * Record what the ClientPackageResolver found out about this client:
+   * the launch intent of its package, if any, and whether anything on this
+   * device can handle it.
+   */
+  public synchronized void setResolution(Intent packageLaunchIntent, boolean installed) {
+    this.packageLaunchIntent = packageLaunchIntent;
+    this.installed = installed;
+    resolved = true;
+  }
+
+  public synchronized boolean isResolved() {
+    return resolved;
+  }
+
+  /** Only meaningful once {@link #isResolved} returns true. */
+  public synchronized boolean isInstalled() {
+    return installed;
   }
 
   public Intent createIntent(Context context, boolean getPackageIntent) {
     Intent intent = new Intent();
 
     // Set up standard intent fields.
-    if( managerData.get("intent-action" ) != null ) {
-     /* if (!start) {
-        intent.setAction(managerData.get("intent-action"));
-        intent.putExtra("stop", "stop");
-        return intent;
-      }
-     */
-
-      //intent.setAction(managerData.get("intent-action"));
+    if( action != null ) {
+      Intent launchIntent = null;
       if (getPackageIntent) {
-      String s = managerData.get("intent-action");
-      String delimiter = "\\.";
-      String str = "";
-      String package_array[] = s.split(delimiter);
-      Log.i("ClientAppData", "intent-action is: " + s);
-      Log.i("ClientAppData", "package_array is: " + package_array.length);
-      for (int i = 0; i < 2; i++) {
-        str += (package_array[i] + ".");
+        synchronized (this) {
+          if (resolved) {
+            launchIntent = packageLaunchIntent;
+          } else if (launchPackage != null) {
+            Log.i("ClientAppData", "resolving " + launchPackage + " at launch time");
+            launchIntent = context.getPackageManager().getLaunchIntentForPackage(launchPackage);
+          }
+        }
+      }
+      if (launchIntent != null) {
+        intent = new Intent(launchIntent);
+      } else {
+        intent.setAction(action);
       }
-      str += package_array[2];
-      Log.i("ClientAppData", "str is: " + str);
-
-      
-        intent = context.getPackageManager().getLaunchIntentForPackage(str);
-      } else { 
-        Log.i("ClientAppData", "Second try!");        
-        intent = new Intent();
-        intent.setAction(managerData.get("intent-action"));
-     }
-     if (intent == null) {
-               Log.i("ClientAppData", "Null intent");
-        intent = new Intent();
-        intent.setAction(managerData.get("intent-action"));
-     }
-        //intent.addCategory("android.intent.category.LAUNCHER");
-        //intent.addCategory("android.intent.category.DEFAULT");
-      //if (!start) {
-      //intent.putExtra("stop", "stop");
-      //return intent;
-      //}     
-      //intent.setAction("android.intent.action.MAIN");
     }
-    if( managerData.get("intent-category") != null ) {
-      intent.addCategory(managerData.get("intent-category"));
-    } else {
-      //intent.addCategory("android.intent.category.LAUNCHER");
-      //intent.addCategory("android.intent.category.DEFAULT");
+    if( category != null ) {
+      intent.addCategory(category);
     }
-    if( managerData.get("intent-type") != null ) {
-      intent.setType(managerData.get("intent-type"));
+    if( type != null ) {
+      intent.setType(type);
     }
-
-    // Can we handle classname and package name?
-
-    // Copy all app data to "extra" data in the intent.
-    for (int i = 0; i < appData.size(); i++) {
-      KeyValue kv = appData.get(i);
-      intent.putExtra(kv.key, kv.value);
-    }
-
+    intent.putExtras(extras);
     return intent;
   }
 
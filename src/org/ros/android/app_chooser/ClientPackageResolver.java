@@ -0,0 +1,171 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Checks in the background which android client apps are installed on this
+ * device.  Results are cached per package and intent action, and the cache
+ * is dropped whenever a package is added, removed or changed.
+ */
+public class ClientPackageResolver {
+  private static final String TAG = "ClientPackageResolver";
+
+  /**
+   * Notified on the resolver thread after a batch in which some clients
+   * were resolved for the first time or changed installation state.  The
+   * clients are given by {@link ClientAppData#getResolutionKey}, since
+   * recompiled templates hold new instances for the same clients.
+   */
+  public interface Listener {
+    void onClientsResolved(Set<String> changedKeys);
+  }
+
+  private static class Resolution {
+    final Intent launchIntent;
+    final boolean installed;
+
+    Resolution(Intent launchIntent, boolean installed) {
+      this.launchIntent = launchIntent;
+      this.installed = installed;
+    }
+  }
+
+  private final Context context;
+  private final Listener listener;
+  // One resolver thread for all instances; each instance's state is only
+  // touched on it.
+  private static final ExecutorService executor =
+      Executors.newSingleThreadExecutor(new DaemonThreadFactory(TAG));
+  private final HashMap<String, Resolution> cache = new HashMap<String, Resolution>();
+  private List<ClientAppData> lastBatch = new ArrayList<ClientAppData>();
+
+  private final BroadcastReceiver packageReceiver = new BroadcastReceiver() {
+      @Override
+      public void onReceive(Context c, Intent intent) {
+        Log.i(TAG, intent.getAction() + ": " + intent.getData());
+        invalidate();
+      }};
+
+  public ClientPackageResolver(Context context, Listener listener) {
+    this.context = context.getApplicationContext();
+    this.listener = listener;
+  }
+
+  /** Start listening for package changes. */
+  public void register() {
+    IntentFilter filter = new IntentFilter();
+    filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+    filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+    filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+    filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+    filter.addDataScheme("package");
+    context.registerReceiver(packageReceiver, filter);
+  }
+
+  public void unregister() {
+    context.unregisterReceiver(packageReceiver);
+  }
+
+  /** Resolve the given client apps in one background batch. */
+  public void resolve(final List<ClientAppData> clients) {
+    executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          lastBatch = clients;
+          resolveBatch(clients);
+        }});
+  }
+
+  /** Forget all cached results and resolve the last batch again. */
+  public void invalidate() {
+    executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          cache.clear();
+          resolveBatch(lastBatch);
+        }});
+  }
+
+  private void resolveBatch(List<ClientAppData> clients) {
+    PackageManager pm = context.getPackageManager();
+    int installed = 0;
+    HashSet<String> changed = new HashSet<String>();
+    for (ClientAppData client : clients) {
+      String key = client.getResolutionKey();
+      Resolution resolution = cache.get(key);
+      if (resolution == null) {
+        Intent launchIntent = null;
+        if (client.getLaunchPackage() != null) {
+          launchIntent = pm.getLaunchIntentForPackage(client.getLaunchPackage());
+        }
+        // Probe with the intent that would be launched, type and category
+        // included, so filters that need them match.
+        boolean actionResolves = client.getAction() != null
+            && !pm.queryIntentActivities(client.createIntent(context, false), 0).isEmpty();
+        resolution = new Resolution(launchIntent, launchIntent != null || actionResolves);
+        cache.put(key, resolution);
+      }
+      boolean wasResolved = client.isResolved();
+      boolean wasInstalled = client.isInstalled();
+      client.setResolution(resolution.launchIntent, resolution.installed);
+      if (!wasResolved || wasInstalled != resolution.installed) {
+        changed.add(key);
+      }
+      if (resolution.installed) {
+        installed++;
+      }
+    }
+    Log.i(TAG, "resolved " + clients.size() + " client apps, " + installed + " installed, "
+          + changed.size() + " changed");
+    if (!changed.isEmpty()) {
+      listener.onClientsResolved(Collections.unmodifiableSet(changed));
+    }
+  }
+}
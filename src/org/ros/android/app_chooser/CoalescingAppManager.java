@@ -0,0 +1,214 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.util.Log;
+import org.ros.exception.RemoteException;
+import org.ros.node.service.ServiceResponseListener;
+import org.ros.service.app_manager.GetAppDetails;
+import org.ros.service.app_manager.GetInstallationState;
+import org.ros.service.app_manager.ListApps;
+import org.ros.service.app_manager.StartApp;
+import org.ros.service.app_manager.StopApp;
+import ros.android.activity.AppManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Front end for the AppManager services.  Concurrent identical read-only
+ * requests share one call: while a request is in flight, later callers
+ * are queued on it and all of them get its result.  Every call goes
+ * through a RobotCallScheduler for deadlines, retries and fail-fast.
+ */
+public class CoalescingAppManager {
+  private static final String TAG = "CoalescingAppManager";
+  private static final long QUERY_DEADLINE_MILLIS = 10000;
+  // Remote exchange updates and starting or stopping apps can take a while.
+  private static final long SLOW_DEADLINE_MILLIS = 60000;
+
+  /** One service call, issued with the listener to report to. */
+  interface Call<T> {
+    void invoke(ServiceResponseListener<T> listener);
+  }
+
+  private final AppManager appManager;
+  private final RobotCallScheduler scheduler = new RobotCallScheduler();
+  private final HashMap<String, List<ServiceResponseListener<?>>> inFlight =
+      new HashMap<String, List<ServiceResponseListener<?>>>();
+  private final AtomicInteger issued = new AtomicInteger();
+  private final AtomicInteger deduplicated = new AtomicInteger();
+
+  /**
+   * Keeps the front end of an activity's current appManager, replacing it
+   * when the activity gets a new appManager.
+   */
+  public static class Holder {
+    private CoalescingAppManager calls;
+
+    public synchronized CoalescingAppManager get(AppManager appManager) {
+      if (calls == null || calls.getAppManager() != appManager) {
+        calls = new CoalescingAppManager(appManager);
+      }
+      return calls;
+    }
+  }
+
+  public CoalescingAppManager(AppManager appManager) {
+    this.appManager = appManager;
+  }
+
+  public AppManager getAppManager() {
+    return appManager;
+  }
+
+  public void listApps(ServiceResponseListener<ListApps.Response> listener) {
+    call("listApps", QUERY_DEADLINE_MILLIS, true, listener, new Call<ListApps.Response>() {
+        @Override
+        public void invoke(ServiceResponseListener<ListApps.Response> l) {
+          appManager.listApps(l);
+        }});
+  }
+
+  public void listExchangeApps(final boolean remoteUpdate,
+                               ServiceResponseListener<GetInstallationState.Response> listener) {
+    call("listExchangeApps:" + remoteUpdate, remoteUpdate ? SLOW_DEADLINE_MILLIS : QUERY_DEADLINE_MILLIS,
+         true, listener, new Call<GetInstallationState.Response>() {
+        @Override
+        public void invoke(ServiceResponseListener<GetInstallationState.Response> l) {
+          appManager.listExchangeApps(remoteUpdate, l);
+        }});
+  }
+
+  public void getAppDetails(String name, ServiceResponseListener<GetAppDetails.Response> listener) {
+    getAppDetails(name, true, listener);
+  }
+
+  /**
+   * Fetch details nobody is waiting for yet.  A failure does not count
+   * towards failing fast, so it cannot block the user's own calls.
+   */
+  public void prefetchAppDetails(String name, ServiceResponseListener<GetAppDetails.Response> listener) {
+    getAppDetails(name, false, listener);
+  }
+
+  /** True while calls to the robot are being failed fast. */
+  public boolean isFailingFast() {
+    return scheduler.isOpen();
+  }
+
+  /** Not idempotent: never shared with other callers and never retried. */
+  public void startApp(final String name, ServiceResponseListener<StartApp.Response> listener) {
+    scheduler.submit("startApp:" + name, new Call<StartApp.Response>() {
+        @Override
+        public void invoke(ServiceResponseListener<StartApp.Response> l) {
+          appManager.startApp(name, l);
+        }}, false, SLOW_DEADLINE_MILLIS, listener);
+  }
+
+  /** Not idempotent: never shared with other callers and never retried. */
+  public void stopApp(final String name, ServiceResponseListener<StopApp.Response> listener) {
+    scheduler.submit("stopApp:" + name, new Call<StopApp.Response>() {
+        @Override
+        public void invoke(ServiceResponseListener<StopApp.Response> l) {
+          appManager.stopApp(name, l);
+        }}, false, SLOW_DEADLINE_MILLIS, listener);
+  }
+
+  public int getIssuedCount() {
+    return issued.get();
+  }
+
+  public int getDeduplicatedCount() {
+    return deduplicated.get();
+  }
+
+  private void getAppDetails(final String name, boolean counted,
+                             ServiceResponseListener<GetAppDetails.Response> listener) {
+    call("getAppDetails:" + name, QUERY_DEADLINE_MILLIS, counted, listener, new Call<GetAppDetails.Response>() {
+        @Override
+        public void invoke(ServiceResponseListener<GetAppDetails.Response> l) {
+          appManager.getAppDetails(name, l);
+        }});
+  }
+
+  private <T> void call(final String key, long deadlineMillis, boolean counted,
+                        ServiceResponseListener<T> listener, Call<T> call) {
+    synchronized (inFlight) {
+      List<ServiceResponseListener<?>> waiting = inFlight.get(key);
+      if (waiting != null) {
+        waiting.add(listener);
+        deduplicated.incrementAndGet();
+        Log.i(TAG, key + " already in flight, " + deduplicated.get() + " calls deduplicated");
+        return;
+      }
+      waiting = new ArrayList<ServiceResponseListener<?>>();
+      waiting.add(listener);
+      inFlight.put(key, waiting);
+    }
+    issued.incrementAndGet();
+    scheduler.submit(key, call, true, deadlineMillis, counted, new ServiceResponseListener<T>() {
+        @Override
+        public void onSuccess(T response) {
+          for (ServiceResponseListener<T> l : CoalescingAppManager.this.<T>complete(key)) {
+            l.onSuccess(response);
+          }
+        }
+
+        @Override
+        public void onFailure(RemoteException e) {
+          for (ServiceResponseListener<T> l : CoalescingAppManager.this.<T>complete(key)) {
+            l.onFailure(e);
+          }
+        }
+      });
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> List<ServiceResponseListener<T>> complete(String key) {
+    List<ServiceResponseListener<?>> waiting;
+    synchronized (inFlight) {
+      waiting = inFlight.remove(key);
+    }
+    List<ServiceResponseListener<T>> listeners = new ArrayList<ServiceResponseListener<T>>();
+    if (waiting != null) {
+      for (ServiceResponseListener<?> l : waiting) {
+        listeners.add((ServiceResponseListener<T>) l);
+      }
+    }
+    return listeners;
+  }
+}
@@ -35,7 +35,6 @@ package org.ros.android.app_chooser;
 
 import org.ros.node.topic.Subscriber;
 import ros.android.activity.RosAppActivity;
-import ros.android.activity.AppManager;
 import android.widget.LinearLayout;
 import android.os.Bundle;
 import org.ros.node.Node;
@@ -54,14 +53,12 @@ import android.view.View;
 import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.widget.TextView;
-import android.widget.ScrollView;
+import android.widget.AbsListView;
 import android.widget.ListView;
-import android.widget.ArrayAdapter;
 import android.widget.ProgressBar;
 import android.util.Log;
 import android.widget.AdapterView;
 import android.widget.AdapterView.OnItemClickListener;
-import java.util.ArrayList;
 import org.ros.message.app_manager.AppInstallationState;
 import org.ros.message.app_manager.ExchangeApp;
 import org.ros.service.app_manager.GetAppDetails;
@@ -88,8 +85,6 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.yaml.snakeyaml.Yaml;
 import org.ros.node.parameter.ParameterTree;
-import android.graphics.BitmapFactory;
-import android.graphics.Bitmap;
 import android.widget.ImageView;
 
 /**
@@ -103,29 +98,102 @@ public class ExchangeActivity extends RosAppActivity {
   private ListView installedAppListView;
   private ListView availableAppListView;
   private String appSelected;
+  // Bumped on every change of appSelected; detail answers for an older
+  // selection are dropped.
+  private volatile int selection;
   private String appSelectedDisplay;
-  private ArrayList<ExchangeApp> availableAppsCache;
-  private ArrayList<ExchangeApp> installedAppsCache;
+  private ExchangeCatalog catalog = ExchangeCatalog.EMPTY;
+  private final AppDetailsCache detailsCache = AppDetailsCache.getInstance();
+  // Size of the exchange_icon view, which detail icons are decoded for.
+  private int detailIconWidth;
+  private int detailIconHeight;
   private LinearLayout appExchangeView;
   private LinearLayout installedAppsView;
   private LinearLayout appDetailView;
   private Button installAppButton;
   private Button uninstallAppButton;
+  // Identical concurrent requests share one service call.
+  private final CoalescingAppManager.Holder calls = new CoalescingAppManager.Holder();
+  private final UiDispatcher<ExchangeCatalog, DetailsResult> ui;
+
+  /** Outcome of a details request for one selection generation. */
+  private static class DetailsResult {
+    final int generation;
+    final AppDetailsCache.Details details;
+    final String error;
+    final boolean unreachable;
+
+    DetailsResult(int generation, AppDetailsCache.Details details, String error, boolean unreachable) {
+      this.generation = generation;
+      this.details = details;
+      this.error = error;
+      this.unreachable = unreachable;
+    }
+  }
 
-  private String[] installed_application_list;
-  private String[] installed_application_display;
-  private String[] available_application_list;
-  private String[] available_application_display;
+  private ExchangeListAdapter installedAdapter;
+  private ExchangeListAdapter availableAdapter;
 
   private enum State { INSTALLED_APPS, APP_EXCHANGE };
   private State lastState;
   private Dialog dialog;
-  private TextView dialog_text;
+  private InstallLog installLog;
   private Button button;
   private static final int INSTALLED_ITEM_ID = 0;
   private static final int AVAILABLE_ITEM_ID = 1;
   private static final int INSTALL_DIALOG = 0;
 
+  public ExchangeActivity() {
+    ui = new UiDispatcher<ExchangeCatalog, DetailsResult>(new UiDispatcher.Sink<ExchangeCatalog, DetailsResult>() {
+        @Override
+        public void showStatus(String status) {
+          TextView statusView = (TextView) findViewById(R.id.status_view);
+          if (statusView != null) {
+            statusView.setText(status);
+          }
+        }
+
+        @Override
+        public void showAlert(String title, String message) {
+          ExchangeActivity.this.showAlert(title, message);
+        }
+
+        @Override
+        public void showList(ExchangeCatalog catalog) {
+          update(catalog);
+        }
+
+        @Override
+        public void showDetails(DetailsResult result) {
+          // The selection may have changed while the answer was decoded
+          // or queued.
+          if (!isCurrentSelection(result.generation)) {
+            return;
+          }
+          if (result.details != null) {
+            ExchangeActivity.this.showDetails(result.details);
+            return;
+          }
+          revertToState();
+          appDetailView.setVisibility(appDetailView.GONE);
+          if (result.unreachable) {
+            showStatus("Failed: robot not reachable.");
+          } else {
+            showAlert("Error on Details Update!", result.error);
+          }
+        }
+      });
+  }
+
+  /** Must be run in UI thread. */
+  private void showAlert(String title, String message) {
+    new AlertDialog.Builder(this).setTitle(title).setCancelable(false)
+      .setMessage(message)
+      .setNeutralButton("Ok", new DialogInterface.OnClickListener() {
+          public void onClick(DialogInterface dialog, int which) { }})
+      .create().show();
+  }
+
   @Override
   public void onCreate(Bundle savedInstanceState) {
     setDefaultAppName(null);
@@ -145,35 +213,60 @@ public class ExchangeActivity extends RosAppActivity {
     exchangeAppDetailTextView = (TextView)findViewById(R.id.exchange_app_detail_text_view);
     installAppButton = (Button)findViewById(R.id.install_app_button);
     uninstallAppButton = (Button)findViewById(R.id.uninstall_app_button);
-    startInstalledApps();
-  }
+    installLog = new InstallLog(this);
+    ImageView detailIcon = (ImageView)findViewById(R.id.exchange_icon);
+    detailIconWidth = IconLoader.targetDimension(detailIcon, true);
+    detailIconHeight = IconLoader.targetDimension(detailIcon, false);
+
+    installedAdapter = new ExchangeListAdapter(this, true);
+    availableAdapter = new ExchangeListAdapter(this, false);
+    installedAppListView.setAdapter(installedAdapter);
+    availableAppListView.setAdapter(availableAdapter);
+    registerForContextMenu(installedAppListView);
+    registerForContextMenu(availableAppListView);
+    OnItemClickListener selectListener = new OnItemClickListener() {
+        public void onItemClick(AdapterView adapter, View view, int index, long id) {
+          ExchangeApp app = ((ExchangeListAdapter) adapter.getAdapter()).getItem(index);
+          if (app == null) {
+            return;
+          }
+          select(app.name, app.display_name);
+          Log.i("ExchangeActivity", appSelected);
+          showSelection();
+          installedAppsView.setVisibility(appExchangeView.GONE);
+          appExchangeView.setVisibility(appExchangeView.GONE);
+          appDetailView.setVisibility(appDetailView.VISIBLE);
+          exchangeAppDetailTextView.setText("Loading...");
+          ImageView iv = (ImageView)ExchangeActivity.this.findViewById(R.id.exchange_icon);
+          iv.setImageResource(R.drawable.icon);
+          updateAppDetails();
+        }};
+    installedAppListView.setOnItemClickListener(selectListener);
+    availableAppListView.setOnItemClickListener(selectListener);
+    AbsListView.OnScrollListener prefetchListener = new AbsListView.OnScrollListener() {
+        @Override
+        public void onScrollStateChanged(AbsListView list, int scrollState) {
+          if (scrollState == SCROLL_STATE_IDLE) {
+            prefetchDetails(list);
+          }
+        }
 
-  private static boolean appInList(ArrayList<ExchangeApp> list, String name) {
-    for (ExchangeApp a : list) {
-      if (a.name == name) {
-        return true;
-      }
-    }
-    return false;
+        @Override
+        public void onScroll(AbsListView list, int first, int visibleCount, int totalCount) {
+        }
+      };
+    installedAppListView.setOnScrollListener(prefetchListener);
+    availableAppListView.setOnScrollListener(prefetchListener);
+    startInstalledApps();
   }
 
   public void installApp(View view) {
-    final ExchangeActivity activity = this;
     showDialog(INSTALL_DIALOG);
     appManager.installApp(appSelected, new ServiceResponseListener<InstallApp.Response>() {
       @Override
       public void onSuccess(InstallApp.Response message) {
         if (!message.installed) {
-          final String errorMessage = message.message;
-          runOnUiThread(new Runnable() {
-              @Override
-              public void run() {
-                new AlertDialog.Builder(activity).setTitle("Error on Installation!").setCancelable(false)
-                  .setMessage("ERROR: " + errorMessage)
-                  .setNeutralButton("Ok", new DialogInterface.OnClickListener() {
-                      public void onClick(DialogInterface dialog, int which) { }})
-                  .create().show();
-              }});
+          ui.alert("Error on Installation!", "ERROR: " + message.message);
         }
         
         runOnUiThread(new Runnable() {
@@ -188,14 +281,10 @@ public class ExchangeActivity extends RosAppActivity {
       @Override
       public void onFailure(final RemoteException e) {
         e.printStackTrace();
+        ui.alert("Error on Installation!", "Failed: cannot contact robot: " + e.toString());
         runOnUiThread(new Runnable() {
             @Override
             public void run() {
-              new AlertDialog.Builder(activity).setTitle("Error on Installation!").setCancelable(false)
-                .setMessage("Failed: cannot contact robot: " + e.toString())
-                .setNeutralButton("Ok", new DialogInterface.OnClickListener() {
-                    public void onClick(DialogInterface dialog, int which) { }})
-                .create().show();
               removeDialog(INSTALL_DIALOG);
             }});
       }
@@ -212,42 +301,22 @@ public class ExchangeActivity extends RosAppActivity {
       @Override
       public void onSuccess(UninstallApp.Response message) {
         if (!message.uninstalled) {
-          final String errorMessage = message.message;
-          runOnUiThread(new Runnable() {
-              @Override
-              public void run() {
-                new AlertDialog.Builder(activity).setTitle("Error on Uninstallation!").setCancelable(false)
-                  .setMessage("ERROR: " + errorMessage)
-                  .setNeutralButton("Ok", new DialogInterface.OnClickListener() {
-                      public void onClick(DialogInterface dialog, int which) { }})
-                  .create().show();
-              }});
+          ui.alert("Error on Uninstallation!", "ERROR: " + message.message);
         }
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-              progress.dismiss();
-            }});
+        ui.dismiss(progress);
       }
       @Override
       public void onFailure(final RemoteException e) {
         e.printStackTrace();
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-              new AlertDialog.Builder(activity).setTitle("Error on Uninstallation").setCancelable(false)
-                .setMessage("Failed: cannot contact robot: " + e.toString())
-                .setNeutralButton("Ok", new DialogInterface.OnClickListener() {
-                    public void onClick(DialogInterface dialog, int which) { }})
-                .create().show();
-              progress.dismiss();
-            }});
+        ui.alert("Error on Uninstallation", "Failed: cannot contact robot: " + e.toString());
+        ui.dismiss(progress);
       }
     });
   }
 
   public void startAppExchange(View view) {
     startAppExchange();
+    prefetchAfterLayout(availableAppListView);
   }
   public void startAppExchange() {
     appDetailView.setVisibility(appDetailView.GONE);
@@ -258,6 +327,7 @@ public class ExchangeActivity extends RosAppActivity {
 
   public void startInstalledApps(View view) {
     startInstalledApps();
+    prefetchAfterLayout(installedAppListView);
   }
   public void startInstalledApps() {
     appDetailView.setVisibility(appDetailView.GONE);
@@ -282,9 +352,8 @@ public class ExchangeActivity extends RosAppActivity {
   }
 
   public void closeDetailView(View view) {
-    appSelected = null;
-    appSelectedDisplay = null;
-    update(availableAppsCache, installedAppsCache);
+    select(null, null);
+    showSelection();
   }
 
   
@@ -292,181 +361,156 @@ public class ExchangeActivity extends RosAppActivity {
     finish();
   }
 
+  /** Change the selected app.  Must be run in UI thread. */
+  private void select(String name, String display) {
+    if (name == null ? appSelected != null : !name.equals(appSelected)) {
+      selection++;
+    }
+    appSelected = name;
+    appSelectedDisplay = display;
+  }
+
+  private boolean isCurrentSelection(int generation) {
+    return generation == selection;
+  }
+
   public void updateAppDetails() {
-    final AppManager man = appManager;
-    if (man == null) {
+    final int generation = selection;
+    final String name = appSelected;
+    final ExchangeCatalog.Entry entry = catalog.get(appSelected);
+    if (entry != null) {
+      AppDetailsCache.Details cached = detailsCache.get(entry);
+      if (cached != null) {
+        showDetails(cached);
+        return;
+      }
+    }
+    if (appManager == null) {
       return;
     }
-    man.getAppDetails(appSelected, new ServiceResponseListener<GetAppDetails.Response>() {
+    calls.get(appManager).getAppDetails(name, new ServiceResponseListener<GetAppDetails.Response>() {
         @Override
         public void onSuccess(GetAppDetails.Response message) {
-          final ExchangeApp app = message.app;
-          if (app == null) {
-            runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                  revertToState();
-                  appDetailView.setVisibility(appDetailView.GONE);
-                  new AlertDialog.Builder(ExchangeActivity.this).setTitle("Error on Details Update!").setCancelable(false)
-                    .setMessage("Failed: cannot contact robot! Null application returned")
-                    .setNeutralButton("Ok", new DialogInterface.OnClickListener() {
-                        public void onClick(DialogInterface dialog, int which) { }})
-                    .create().show();
-                }});
+          if (!isCurrentSelection(generation)) {
+            Log.i("RosAndroid", "dropping details of " + name + ", no longer selected");
             return;
           }
-          Bitmap bitmap = null;
-          if( app.icon.data.length > 0 && app.icon.format != null &&
-              (app.icon.format.equals("jpeg") || app.icon.format.equals("png")) ) {
-            bitmap = BitmapFactory.decodeByteArray( app.icon.data, 0, app.icon.data.length );
+          ExchangeApp app = message.app;
+          if (app == null) {
+            ui.details(new DetailsResult(generation, null,
+                "Failed: cannot contact robot! Null application returned", false));
+            return;
           }
-          final Bitmap iconBitmap = bitmap;
-          Log.i("RosAndroid", "GetInstallationState.Response: " + availableAppsCache.size() + " apps");
-          runOnUiThread(new Runnable() {
-              @Override
-              public void run() {
-                ImageView iv = (ImageView)ExchangeActivity.this.findViewById(R.id.exchange_icon);
-                if( iconBitmap != null ) {
-                  iv.setImageBitmap(iconBitmap);
-                } else {
-                  iv.setImageResource(R.drawable.icon);
-                }
-                exchangeAppDetailTextView.setText(app.description.toString());
-                update(availableAppsCache, installedAppsCache);
-              }});
+          Log.i("RosAndroid", "GetAppDetails.Response: " + app.name);
+          // Decode here rather than on the UI thread.
+          AppDetailsCache.Details details = detailsCache.put(entry, app, detailIconWidth, detailIconHeight);
+          ui.details(new DetailsResult(generation, details, null, false));
         }
         @Override
-        public void onFailure(final RemoteException e) {
+        public void onFailure(RemoteException e) {
           e.printStackTrace();
-          runOnUiThread(new Runnable() {
-              @Override
-              public void run() {
-                revertToState();
-                appDetailView.setVisibility(appDetailView.GONE);
-                new AlertDialog.Builder(ExchangeActivity.this).setTitle("Error on Details Update!").setCancelable(false)
-                  .setMessage("Failed: cannot contact robot: " + e.toString())
-                  .setNeutralButton("Ok", new DialogInterface.OnClickListener() {
-                      public void onClick(DialogInterface dialog, int which) { }})
-                  .create().show();
-              }});
+          ui.details(new DetailsResult(generation, null, "Failed: cannot contact robot: " + e.toString(),
+                                       e instanceof RobotCallScheduler.CircuitOpenException));
         }});
   }
 
-  private void update(ArrayList<ExchangeApp> availableApps, ArrayList<ExchangeApp> installedApps) {
-    int nInstalledApps = 0;
-    int nAvailableApps = 0;
+  /** Must be run in UI thread. */
+  private void showDetails(AppDetailsCache.Details details) {
+    ImageView iv = (ImageView)findViewById(R.id.exchange_icon);
+    if (details.getIcon() != null) {
+      iv.setImageBitmap(details.getIcon());
+    } else {
+      iv.setImageResource(R.drawable.icon);
+    }
+    exchangeAppDetailTextView.setText(details.getDescription());
+    showSelection();
+  }
 
-    int i = 0;
-    for (ExchangeApp a : installedApps) {
-      if (!a.hidden) {
-        nInstalledApps++;
-      }
+  /**
+   * Fetch the details of the rows on screen into the details cache, so
+   * opening one of them needs no round trip.  Prefetch failures do not
+   * count towards failing fast, and nothing is prefetched while failing
+   * fast.
+   */
+  private void prefetchDetails(AbsListView list) {
+    if (appManager == null || !list.isShown() || calls.get(appManager).isFailingFast()) {
+      return;
     }
-    installed_application_list = new String[nInstalledApps];
-    installed_application_display = new String[nInstalledApps];
-    for (ExchangeApp a : installedApps) {
-      if (!a.hidden) {
-        installed_application_list[i] =  a.name;
-        if (!a.version.equals(a.latest_version)) {
-          installed_application_display[i] = a.display_name + " (Upgradable)";
-        } else {
-          installed_application_display[i] = a.display_name;
-        }
-        i = i + 1;
+    ExchangeListAdapter adapter = (ExchangeListAdapter) list.getAdapter();
+    int last = list.getLastVisiblePosition();
+    for (int row = list.getFirstVisiblePosition(); row <= last; row++) {
+      ExchangeApp app = adapter.getItem(row);
+      if (app == null) {
+        continue;
+      }
+      final ExchangeCatalog.Entry entry = catalog.get(app.name);
+      if (entry == null || detailsCache.get(entry) != null) {
+        continue;
       }
+      // Shares the service call with a tap on the same row.
+      calls.get(appManager).prefetchAppDetails(app.name, new ServiceResponseListener<GetAppDetails.Response>() {
+          @Override
+          public void onSuccess(GetAppDetails.Response message) {
+            if (message.app != null) {
+              detailsCache.put(entry, message.app, detailIconWidth, detailIconHeight);
+            }
+          }
+          @Override
+          public void onFailure(RemoteException e) {
+            Log.i("RosAndroid", "prefetching details of " + entry.getApp().name + " failed: " + e.getMessage());
+          }});
     }
+  }
 
-    installedAppListView.setTextFilterEnabled(true);
-    
-
-    final String [] installed_application_list_array = installed_application_list;
-    final String [] installed_application_display_array = installed_application_display;
-    ArrayAdapter ad = new ArrayAdapter(this,android.R.layout.simple_list_item_1, installed_application_display_array);
-    installedAppListView.setAdapter(ad);
-    registerForContextMenu(installedAppListView);
-    registerForContextMenu(availableAppListView);
-    installedAppListView.setOnItemClickListener(new OnItemClickListener() {
-        public void onItemClick(AdapterView adapter, View view, int index, long id) {
-          appSelected = installed_application_list_array[index];
-          appSelectedDisplay = installed_application_display_array[index];
-          Log.i("ExchangeActivity", appSelected);
-          ExchangeActivity.this.runOnUiThread(new Runnable() {
-              @Override
-              public void run() {
-                update(availableAppsCache, installedAppsCache);
-                installedAppsView.setVisibility(appExchangeView.GONE);
-                appExchangeView.setVisibility(appExchangeView.GONE);
-                appDetailView.setVisibility(appDetailView.VISIBLE);
-                exchangeAppDetailTextView.setText("Loading...");
-                ((ImageView)ExchangeActivity.this.findViewById(R.id.exchange_icon)).setImageResource(R.drawable.icon);
-              }});
-          updateAppDetails();
+  /** Prefetch the rows of the list once it has been laid out. */
+  private void prefetchAfterLayout(final AbsListView list) {
+    list.post(new Runnable() {
+        @Override
+        public void run() {
+          prefetchDetails(list);
         }});
+  }
 
-    ////
-    i = 0;
-    for (ExchangeApp a : availableApps) {
-      if (!a.hidden) {
-        nAvailableApps++;
-      }
-    }
-    available_application_list = new String[nAvailableApps];
-    available_application_display = new String[nAvailableApps];
-    for (ExchangeApp a : availableApps) {
-      if (!a.hidden) {
-        available_application_list[i] =  a.name;
-        available_application_display[i] = a.display_name;
-        i = i + 1;
-      }
+  /**
+   * Show a new exchange catalog.  Must be run in UI thread.  Only the
+   * first catalog starts a prefetch; later ones, such as every install
+   * status change, leave it to scrolling and switching lists.
+   */
+  private void update(ExchangeCatalog catalog) {
+    boolean first = this.catalog == ExchangeCatalog.EMPTY;
+    installedAdapter.update(catalog, installedAppListView);
+    availableAdapter.update(catalog, availableAppListView);
+    this.catalog = catalog;
+    showSelection();
+    if (first) {
+      prefetchAfterLayout(installedAppListView);
+      prefetchAfterLayout(availableAppListView);
     }
+  }
 
-    availableAppListView.setTextFilterEnabled(true);
-    
-
-    final String [] available_application_list_array = available_application_list;
-    final String [] available_application_display_array = available_application_display;
-    ad = new ArrayAdapter(this,android.R.layout.simple_list_item_1, available_application_display_array);
-    availableAppListView.setAdapter(ad);
-    availableAppListView.setOnItemClickListener(new OnItemClickListener() {
-        public void onItemClick(AdapterView adapter, View view, int index, long id) {
-          appSelected = available_application_list_array[index];
-          appSelectedDisplay = available_application_display_array[index];
-          Log.i("ExchangeActivity", appSelected);
-          ExchangeActivity.this.runOnUiThread(new Runnable() {
-              @Override
-              public void run() {
-                update(availableAppsCache, installedAppsCache);
-                installedAppsView.setVisibility(appExchangeView.GONE);
-                appExchangeView.setVisibility(appExchangeView.GONE);
-                appDetailView.setVisibility(appDetailView.VISIBLE);
-                exchangeAppDetailTextView.setText("Loading...");
-                ((ImageView)ExchangeActivity.this.findViewById(R.id.exchange_icon)).setImageResource(R.drawable.icon);
-              }});
-          updateAppDetails();
-        }});
-
-    availableAppsCache = availableApps;
-    installedAppsCache = installedApps;
-    
-    if (appInList(installedApps, appSelected)) {
+  /**
+   * Show the state of the selected app, or go back to the lists if it is
+   * no longer in the exchange.  Must be run in UI thread.
+   */
+  private void showSelection() {
+    ExchangeCatalog.Entry selected = catalog.get(appSelected);
+    if (selected != null && selected.isInstalled()) {
       //Is installed
-      exchangeAppNameView.setText(appSelectedDisplay + " (Installed)");
-      installAppButton.setVisibility(appExchangeView.GONE);
-      for (ExchangeApp a : installedApps) {
-        if (a.name == appSelected && !a.version.equals(a.latest_version)) {
-          exchangeAppNameView.setText(a.display_name + " (Installed, Upgrade Available)");
-          installAppButton.setVisibility(appExchangeView.VISIBLE);
-        }
+      if (selected.isUpgradable()) {
+        exchangeAppNameView.setText(selected.getApp().display_name + " (Installed, Upgrade Available)");
+        installAppButton.setVisibility(appExchangeView.VISIBLE);
+      } else {
+        exchangeAppNameView.setText(appSelectedDisplay + " (Installed)");
+        installAppButton.setVisibility(appExchangeView.GONE);
       }
       uninstallAppButton.setVisibility(appDetailView.VISIBLE);
-    } else if (appInList(availableApps, appSelected)) {
+    } else if (selected != null) {
       //Is available
       exchangeAppNameView.setText(appSelectedDisplay + " (Not Installed)");
       installAppButton.setVisibility(appExchangeView.VISIBLE);
       uninstallAppButton.setVisibility(appDetailView.GONE);
     } else {
-      appSelected = null; //Bad app!
-      appSelectedDisplay = null;
+      select(null, null); //Bad app!
     }
 
     if (appSelected == null) {
@@ -478,34 +522,24 @@ public class ExchangeActivity extends RosAppActivity {
   protected void onResume() {
     super.onResume();
     safeSetStatus("");
-    appSelected = null;
+    select(null, null);
   }
 
   private void runUpdate(boolean remoteUpdate) {
-    appManager.listExchangeApps(remoteUpdate, new ServiceResponseListener<GetInstallationState.Response>() {
+    calls.get(appManager).listExchangeApps(remoteUpdate, new ServiceResponseListener<GetInstallationState.Response>() {
         @Override
         public void onSuccess(GetInstallationState.Response message) {
-          availableAppsCache = message.available_apps;
-          installedAppsCache = message.installed_apps;
-          Log.i("RosAndroid", "GetInstallationState.Response: " + availableAppsCache.size() + " apps");
-          runOnUiThread(new Runnable() {
-              @Override
-              public void run() {
-                update(availableAppsCache, installedAppsCache);
-              }});
+          Log.i("RosAndroid", "GetInstallationState.Response: " + message.available_apps.size() + " apps");
+          ui.list(new ExchangeCatalog(message.available_apps, message.installed_apps));
         }
         @Override
         public void onFailure(final RemoteException e) {
           e.printStackTrace();
-          runOnUiThread(new Runnable() {
-              @Override
-              public void run() {
-                new AlertDialog.Builder(ExchangeActivity.this).setTitle("Error on List Update!").setCancelable(false)
-                  .setMessage("Failed: cannot contact robot: " + e.toString())
-                  .setNeutralButton("Ok", new DialogInterface.OnClickListener() {
-                      public void onClick(DialogInterface dialog, int which) { }})
-                  .create().show();
-              }});
+          if (e instanceof RobotCallScheduler.CircuitOpenException) {
+            safeSetStatus("Failed: robot not reachable.");
+            return;
+          }
+          ui.alert("Error on List Update!", "Failed: cannot contact robot: " + e.toString());
         }
       });
   }
@@ -525,48 +559,56 @@ public class ExchangeActivity extends RosAppActivity {
       return;
     }
 
-    runUpdate(false);
-    
     runOnUiThread(new Runnable() {
         @Override
         public void run() {
           robotNameView.setText(getCurrentRobot().getRobotName());
         }});
-    
-    
+
+    // Independent setup steps, run side by side.
+    NodeBootstrap bootstrap = new NodeBootstrap("ExchangeActivity");
+    bootstrap.run("list_exchange_apps", new Runnable() {
+        @Override
+        public void run() {
+          runUpdate(false);
+        }});
+    bootstrap.run("exchange_list_callback", new Runnable() {
+        @Override
+        public void run() {
+          addExchangeListCallback();
+        }});
+    final Node bootNode = node;
+    bootstrap.run("install_status_subscriber", new Runnable() {
+        @Override
+        public void run() {
+          subscribeInstallStatus(bootNode);
+        }});
+  }
+
+  private void addExchangeListCallback() {
     try {
       appManager.addExchangeListCallback(new MessageListener<AppInstallationState>() {
           @Override
           public void onNewMessage(AppInstallationState message) {
-            availableAppsCache = message.available_apps;
-            installedAppsCache = message.installed_apps;
-            Log.i("RosAndroid", "GetInstallationState.Response: " + availableAppsCache.size() + " apps");
-            runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                  update(availableAppsCache, installedAppsCache);
-                }
-              });
+            Log.i("RosAndroid", "AppInstallationState: " + message.available_apps.size() + " apps");
+            ui.list(new ExchangeCatalog(message.available_apps, message.installed_apps));
           }
         });
     } catch (RosException e) {
       Log.e("Exchange", "Exception during callback creation");
       e.printStackTrace();
     }
+  }
+
+  private void subscribeInstallStatus(Node node) {
     Subscriber client_sub = node.newSubscriber("install_status","std_msgs/String");
+    // The subscriber thread is the only writer of the install log.
     client_sub.addMessageListener(new MessageListener<org.ros.message.std_msgs.String>() {
-            @Override
-            public void onNewMessage(final org.ros.message.std_msgs.String data) {
-              runOnUiThread(new Runnable() {
-              @Override
-              public void run() {
-                String newline = System.getProperty("line.separator");
-                addTextToTextView(newline+data.data);  
-              }      
-            });
-          }   
+        @Override
+        public void onNewMessage(org.ros.message.std_msgs.String data) {
+          installLog.append(data.data);
         }
-      );
+      });
   }
   @Override
   protected void onNodeDestroy(Node node) {
@@ -574,31 +616,8 @@ public class ExchangeActivity extends RosAppActivity {
     super.onNodeDestroy(node);
   }
 
-  public void addTextToTextView(String message) {
-
-    dialog_text.append(message);
-
-    final ScrollView dialog_scroll = (ScrollView) dialog.findViewById(R.id.dialog_scrollview);
-    dialog_scroll.post(new Runnable()
-    { 
-        @Override
-        public void run()
-        {
-            dialog_scroll.fullScroll(View.FOCUS_DOWN);
-        }
-    });
-  }  
-
-  private void safeSetStatus(final String statusMessage) {
-    final TextView statusView = (TextView) findViewById(R.id.status_view);
-    if (statusView != null) {
-      statusView.post(new Runnable() {
-        @Override
-        public void run() {
-          statusView.setText(statusMessage);
-        }
-      });
-    }
+  private void safeSetStatus(String statusMessage) {
+    ui.status(statusMessage);
   }
 
   @Override
@@ -623,8 +642,8 @@ public class ExchangeActivity extends RosAppActivity {
   public void onCreateContextMenu(ContextMenu menu, View v, ContextMenuInfo menuInfo) {
     if (v.getId()==R.id.installed_app_list) {
       AdapterView.AdapterContextMenuInfo info = (AdapterView.AdapterContextMenuInfo) menuInfo;
-      appSelected = installed_application_list[info.position];
-      appSelectedDisplay = installed_application_display[info.position];
+      ExchangeApp app = installedAdapter.getItem(info.position);
+      select(app.name, app.display_name);
       menu.setHeaderTitle(appSelectedDisplay);
       String[] menuItems = getResources().getStringArray(R.array.installed_context_menu);
       for (int i = 0; i<menuItems.length; i++) {
@@ -633,8 +652,8 @@ public class ExchangeActivity extends RosAppActivity {
     }
     else if (v.getId()==R.id.available_app_list) {
       AdapterView.AdapterContextMenuInfo info = (AdapterView.AdapterContextMenuInfo) menuInfo;
-      appSelected = available_application_list[info.position];
-      appSelectedDisplay = available_application_display[info.position];
+      ExchangeApp app = availableAdapter.getItem(info.position);
+      select(app.name, app.display_name);
       menu.setHeaderTitle(appSelectedDisplay);
       String[] menuItems = getResources().getStringArray(R.array.exchange_context_menu);
       for (int i = 0; i<menuItems.length; i++) {
@@ -677,8 +696,10 @@ public class ExchangeActivity extends RosAppActivity {
         dialog = new Dialog(this);
         dialog.setContentView(R.layout.install_dialog);
         dialog.setTitle("Installation Messages");
-        dialog_text = (TextView) dialog.findViewById(R.id.dialog_textview);
-        dialog_text.setText("Installing...");
+        ListView logList = (ListView) dialog.findViewById(R.id.install_log_list);
+        logList.setAdapter(installLog);
+        installLog.setDroppedView((TextView) dialog.findViewById(R.id.install_log_dropped));
+        installLog.reset("Installing...");
         button = (Button) dialog.findViewById(R.id.ok_button);
         button.setOnClickListener(new View.OnClickListener() {
           @Override
@@ -0,0 +1,131 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import org.ros.message.app_manager.ExchangeApp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable index of a robot's app exchange: the installed and available
+ * lists as received, and every app by name with its installation state and
+ * whether an upgrade exists, all worked out once when the catalog is built.
+ * Build it off the UI thread; lookups are constant time.
+ */
+public final class ExchangeCatalog {
+  public static final ExchangeCatalog EMPTY = new ExchangeCatalog(null, null);
+
+  /** What the catalog knows about one app. */
+  public static final class Entry {
+    private final ExchangeApp app;
+    private final boolean installed;
+    private final boolean upgradable;
+
+    Entry(ExchangeApp app, boolean installed) {
+      this.app = app;
+      this.installed = installed;
+      this.upgradable = installed && isUpgradable(app);
+    }
+
+    /** The installed app if it is installed, otherwise the available one. */
+    public ExchangeApp getApp() {
+      return app;
+    }
+
+    public boolean isInstalled() {
+      return installed;
+    }
+
+    public boolean isUpgradable() {
+      return upgradable;
+    }
+  }
+
+  private final List<ExchangeApp> installed;
+  private final List<ExchangeApp> available;
+  private final Map<String, Entry> byName;
+
+  public ExchangeCatalog(List<ExchangeApp> available, List<ExchangeApp> installed) {
+    this.available = unmodifiable(available);
+    this.installed = unmodifiable(installed);
+    byName = new HashMap<String, Entry>((this.available.size() + this.installed.size()) * 2);
+    for (ExchangeApp app : this.available) {
+      byName.put(app.name, new Entry(app, false));
+    }
+    // An app in both lists is shown as installed.
+    for (ExchangeApp app : this.installed) {
+      byName.put(app.name, new Entry(app, true));
+    }
+  }
+
+  private static List<ExchangeApp> unmodifiable(List<ExchangeApp> apps) {
+    if (apps == null) {
+      return Collections.emptyList();
+    }
+    return Collections.unmodifiableList(new ArrayList<ExchangeApp>(apps));
+  }
+
+  /** Whether an installed app's version differs from the latest one. */
+  public static boolean isUpgradable(ExchangeApp app) {
+    return app.version != null && !app.version.equals(app.latest_version);
+  }
+
+  public List<ExchangeApp> getInstalled() {
+    return installed;
+  }
+
+  public List<ExchangeApp> getAvailable() {
+    return available;
+  }
+
+  /** The entry of the named app, or null if the exchange has no such app. */
+  public Entry get(String name) {
+    if (name == null) {
+      return null;
+    }
+    return byName.get(name);
+  }
+
+  public boolean contains(String name) {
+    return get(name) != null;
+  }
+
+  public int size() {
+    return byName.size();
+  }
+}
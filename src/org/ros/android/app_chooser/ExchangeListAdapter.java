@@ -0,0 +1,171 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+import org.ros.message.app_manager.ExchangeApp;
+
+import java.util.List;
+
+/**
+ * Rows of one of the exchange lists, installed or available, backed
+ * directly by the catalog's list.  Hidden apps are skipped through a
+ * reused index of row positions rather than a filtered copy, and an update
+ * that keeps the same rows only rebinds the visible rows whose text
+ * changed.
+ */
+public class ExchangeListAdapter extends BaseAdapter {
+  private final LayoutInflater inflater;
+  private final boolean installedList;
+  private ExchangeCatalog catalog = ExchangeCatalog.EMPTY;
+  private List<ExchangeApp> apps;
+  // Index in apps of each row; swapped with spareRows on every update.
+  private int[] rows = new int[0];
+  private int[] spareRows = new int[0];
+  private int rowCount;
+
+  public ExchangeListAdapter(Context c, boolean installedList) {
+    inflater = (LayoutInflater) c.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+    this.installedList = installedList;
+    apps = appsOf(catalog);
+  }
+
+  private List<ExchangeApp> appsOf(ExchangeCatalog catalog) {
+    return installedList ? catalog.getInstalled() : catalog.getAvailable();
+  }
+
+  /**
+   * Show the given catalog in the list.  Must be run in the UI thread.
+   */
+  public void update(ExchangeCatalog newCatalog, AbsListView list) {
+    List<ExchangeApp> newApps = appsOf(newCatalog);
+    if (spareRows.length < newApps.size()) {
+      spareRows = new int[newApps.size()];
+    }
+    int newCount = 0;
+    for (int i = 0; i < newApps.size(); i++) {
+      if (!newApps.get(i).hidden) {
+        spareRows[newCount++] = i;
+      }
+    }
+    boolean structural = newCount != rowCount;
+    for (int row = 0; !structural && row < newCount; row++) {
+      structural = !newApps.get(spareRows[row]).name.equals(apps.get(rows[row]).name);
+    }
+
+    ExchangeCatalog oldCatalog = catalog;
+    List<ExchangeApp> oldApps = apps;
+    int[] oldRows = rows;
+    rows = spareRows;
+    spareRows = oldRows;
+    rowCount = newCount;
+    apps = newApps;
+    catalog = newCatalog;
+
+    if (structural) {
+      // Stable ids keep the list at the same rows across the reload.
+      notifyDataSetChanged();
+      return;
+    }
+    int first = list.getFirstVisiblePosition();
+    for (int i = 0; i < list.getChildCount(); i++) {
+      int row = first + i;
+      if (row >= rowCount) {
+        break;
+      }
+      ExchangeApp before = oldApps.get(oldRows[row]);
+      ExchangeApp after = apps.get(rows[row]);
+      if (!sameText(before, after) || isUpgradable(oldCatalog, before) != isUpgradable(catalog, after)) {
+        getView(row, list.getChildAt(i), list);
+      }
+    }
+  }
+
+  private static boolean sameText(ExchangeApp a, ExchangeApp b) {
+    return a.display_name == null ? b.display_name == null : a.display_name.equals(b.display_name);
+  }
+
+  private boolean isUpgradable(ExchangeCatalog catalog, ExchangeApp app) {
+    if (!installedList) {
+      return false;
+    }
+    ExchangeCatalog.Entry entry = catalog.get(app.name);
+    return entry != null && entry.isUpgradable();
+  }
+
+  @Override
+  public int getCount() {
+    return rowCount;
+  }
+
+  @Override
+  public ExchangeApp getItem(int position) {
+    if (position < 0 || position >= rowCount) {
+      return null;
+    }
+    return apps.get(rows[position]);
+  }
+
+  @Override
+  public long getItemId(int position) {
+    ExchangeApp app = getItem(position);
+    return app == null ? 0 : AppAdapter.stableId(app.name);
+  }
+
+  @Override
+  public boolean hasStableIds() {
+    return true;
+  }
+
+  @Override
+  public View getView(int position, View convertView, ViewGroup parent) {
+    TextView view = (TextView) convertView;
+    if (view == null) {
+      view = (TextView) inflater.inflate(android.R.layout.simple_list_item_1, parent, false);
+    }
+    ExchangeApp app = getItem(position);
+    if (isUpgradable(catalog, app)) {
+      view.setText(app.display_name + " (Upgradable)");
+    } else {
+      view.setText(app.display_name);
+    }
+    return view;
+  }
+}
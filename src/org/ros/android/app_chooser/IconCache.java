@@ -0,0 +1,229 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Process-wide, memory-bounded LRU cache of decoded app icons.  Entries are
+ * keyed by a digest of the icon bytes plus the icon format, so an icon that
+ * is republished unchanged in a new message is still only decoded once.
+ */
+public class IconCache {
+  private static final String TAG = "IconCache";
+  private static IconCache instance;
+
+  private final LinkedHashMap<String, Bitmap> bitmaps;
+  // Digests are memoized per byte array instance; arrays hash by identity.
+  private final WeakHashMap<byte[], String> keys;
+  // Content keys of the originals of icons that stand in for them, such as
+  // the thumbnails of a stored app list.
+  private final WeakHashMap<byte[], String> standIns;
+  private final long maxBytes;
+  private long currentBytes;
+  private int hits;
+  private int misses;
+  private int evictions;
+
+  public IconCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+    bitmaps = new LinkedHashMap<String, Bitmap>(32, 0.75f, true);
+    keys = new WeakHashMap<byte[], String>();
+    standIns = new WeakHashMap<byte[], String>();
+  }
+
+  /** The cache shared by the app grid and the exchange detail view. */
+  public static synchronized IconCache getInstance() {
+    if (instance == null) {
+      instance = new IconCache(Runtime.getRuntime().maxMemory() / 16);
+    }
+    return instance;
+  }
+
+  /** True if the icon is in a format BitmapFactory is expected to handle. */
+  public static boolean isDecodable(String format, byte[] data) {
+    return data != null && data.length > 0 && format != null &&
+        (format.equals("jpeg") || format.equals("png"));
+  }
+
+  /**
+   * Return the content key for the given icon, or null if the icon cannot
+   * be decoded.
+   */
+  public String keyFor(String format, byte[] data) {
+    if (!isDecodable(format, data)) {
+      return null;
+    }
+    String digest;
+    synchronized (this) {
+      digest = keys.get(data);
+    }
+    if (digest == null) {
+      // Hash outside the lock so UI thread lookups never wait on it.
+      digest = digest(data);
+      synchronized (this) {
+        keys.put(data, digest);
+      }
+    }
+    return format + ":" + digest;
+  }
+
+  /**
+   * Record that data is a re-encoded copy of the icon with the given
+   * content key, so {@link #originalKeyFor} treats the two as the same.
+   */
+  public synchronized void registerStandIn(byte[] data, String originalKey) {
+    if (data != null && originalKey != null) {
+      standIns.put(data, originalKey);
+    }
+  }
+
+  /**
+   * Return the content key of the icon the data represents: the key of its
+   * original if it was registered as a stand-in, otherwise its own key.
+   */
+  public String originalKeyFor(String format, byte[] data) {
+    synchronized (this) {
+      String original = data == null ? null : standIns.get(data);
+      if (original != null) {
+        return original;
+      }
+    }
+    return keyFor(format, data);
+  }
+
+  /**
+   * Return the content key only if it has already been computed for this
+   * byte array, without hashing it.
+   */
+  public synchronized String peekKey(String format, byte[] data) {
+    if (!isDecodable(format, data)) {
+      return null;
+    }
+    String digest = keys.get(data);
+    return digest == null ? null : format + ":" + digest;
+  }
+
+  public synchronized Bitmap get(String key) {
+    if (key == null) {
+      return null;
+    }
+    Bitmap bitmap = bitmaps.get(key);
+    if (bitmap != null) {
+      hits++;
+    } else {
+      misses++;
+    }
+    return bitmap;
+  }
+
+  public synchronized void put(String key, Bitmap bitmap) {
+    if (key == null || bitmap == null) {
+      return;
+    }
+    Bitmap old = bitmaps.put(key, bitmap);
+    if (old != null) {
+      currentBytes -= sizeOf(old);
+    }
+    currentBytes += sizeOf(bitmap);
+    trim();
+  }
+
+  public synchronized void clear() {
+    bitmaps.clear();
+    currentBytes = 0;
+  }
+
+  public synchronized int getHitCount() {
+    return hits;
+  }
+
+  public synchronized int getMissCount() {
+    return misses;
+  }
+
+  public synchronized int getEvictionCount() {
+    return evictions;
+  }
+
+  public synchronized long getSizeBytes() {
+    return currentBytes;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "IconCache[entries=" + bitmaps.size() + ", bytes=" + currentBytes + "/" + maxBytes
+        + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "]";
+  }
+
+  private void trim() {
+    Iterator<Map.Entry<String, Bitmap>> it = bitmaps.entrySet().iterator();
+    // Always keep the most recent entry, even if it alone exceeds the budget.
+    while (currentBytes > maxBytes && bitmaps.size() > 1 && it.hasNext()) {
+      Map.Entry<String, Bitmap> eldest = it.next();
+      currentBytes -= sizeOf(eldest.getValue());
+      it.remove();
+      evictions++;
+    }
+  }
+
+  private static long sizeOf(Bitmap bitmap) {
+    return (long) bitmap.getRowBytes() * bitmap.getHeight();
+  }
+
+  private static String digest(byte[] data) {
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-1");
+      byte[] hash = md.digest(data);
+      StringBuilder sb = new StringBuilder(hash.length * 2);
+      for (int i = 0; i < hash.length; i++) {
+        sb.append(Character.forDigit((hash[i] >> 4) & 0xf, 16));
+        sb.append(Character.forDigit(hash[i] & 0xf, 16));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      Log.e(TAG, "SHA-1 unavailable, falling back to array hash");
+      return data.length + "-" + Arrays.hashCode(data);
+    }
+  }
+}
@@ -0,0 +1,263 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes app icons on a small pool of background threads, downsampled to
+ * the size of the ImageView they are bound to.  Results go through the
+ * shared IconCache and are only delivered if the view has not been
+ * rebound to another icon in the meantime.
+ */
+public class IconLoader {
+  private static final String TAG = "IconLoader";
+  private static final int WORKERS = 2;
+  private static final int QUEUE_SIZE = 64;
+  private static IconLoader instance;
+
+  private final IconCache cache;
+  private final Handler handler;
+  private final ThreadPoolExecutor executor;
+
+  public IconLoader(IconCache cache) {
+    this.cache = cache;
+    handler = new Handler(Looper.getMainLooper());
+    executor = new ThreadPoolExecutor(WORKERS, WORKERS, 0, TimeUnit.MILLISECONDS,
+        new LifoQueue(QUEUE_SIZE), new ThreadFactory() {
+          private int count = 0;
+          @Override
+          public synchronized Thread newThread(final Runnable r) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                  Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                  r.run();
+                }}, "IconLoader-" + (count++));
+          }
+        }, new RejectedExecutionHandler() {
+          @Override
+          public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
+            if (e.isShutdown()) {
+              return;
+            }
+            // Make room by giving up the request that has waited longest.
+            Runnable oldest = ((LifoQueue) e.getQueue()).pollLast();
+            if (oldest instanceof Request) {
+              ((Request) oldest).abandon();
+            }
+            e.execute(r);
+          }
+        });
+  }
+
+  /**
+   * Hands out the newest request first: the views bound last are the
+   * ones on screen.
+   */
+  private static class LifoQueue extends LinkedBlockingDeque<Runnable> {
+    LifoQueue(int capacity) {
+      super(capacity);
+    }
+
+    @Override
+    public boolean offer(Runnable r) {
+      return offerFirst(r);
+    }
+  }
+
+  public static synchronized IconLoader getInstance() {
+    if (instance == null) {
+      instance = new IconLoader(IconCache.getInstance());
+    }
+    return instance;
+  }
+
+  /**
+   * Bind the given icon to the view, showing placeholderResource until it
+   * has been decoded.  Must be called on the UI thread.
+   */
+  public void load(ImageView view, String format, byte[] data, int placeholderResource) {
+    if (!IconCache.isDecodable(format, data)) {
+      view.setTag(null);
+      view.setImageResource(placeholderResource);
+      return;
+    }
+    int width = targetDimension(view, true);
+    int height = targetDimension(view, false);
+    String key = cache.peekKey(format, data);
+    if (key != null) {
+      Bitmap bitmap = cache.get(sizedKey(key, width, height));
+      if (bitmap != null) {
+        view.setTag(null);
+        view.setImageBitmap(bitmap);
+        return;
+      }
+    }
+    Request request = new Request(view, format, data, width, height);
+    view.setTag(request);
+    view.setImageResource(placeholderResource);
+    executor.execute(request);
+  }
+
+  /**
+   * Return the icon decoded at a sample size fitting width x height,
+   * decoding and caching it under its sized key on a miss.  Returns null
+   * if the icon cannot be decoded.  Call it off the UI thread.
+   */
+  public Bitmap getBitmap(String format, byte[] data, int width, int height) {
+    String key = cache.keyFor(format, data);
+    if (key == null) {
+      return null;
+    }
+    key = sizedKey(key, width, height);
+    Bitmap bitmap = cache.get(key);
+    if (bitmap == null) {
+      bitmap = decode(format, data, width, height);
+      cache.put(key, bitmap);
+    }
+    return bitmap;
+  }
+
+  private static Bitmap decode(String format, byte[] data, int width, int height) {
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inJustDecodeBounds = true;
+    BitmapFactory.decodeByteArray(data, 0, data.length, options);
+    if (options.outWidth <= 0 || options.outHeight <= 0) {
+      Log.w(TAG, "Could not read icon bounds (" + format + ", " + data.length + " bytes)");
+      return null;
+    }
+    options.inSampleSize = sampleSize(options.outWidth, options.outHeight, width, height);
+    options.inJustDecodeBounds = false;
+    return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+  }
+
+  static String sizedKey(String key, int width, int height) {
+    return key + "@" + width + "x" + height;
+  }
+
+  /**
+   * Pick the largest power-of-two sample size that keeps the decoded image
+   * at least as large as the requested dimensions.
+   */
+  static int sampleSize(int width, int height, int reqWidth, int reqHeight) {
+    int sample = 1;
+    if (reqWidth <= 0 || reqHeight <= 0) {
+      return sample;
+    }
+    while (width / (sample * 2) >= reqWidth && height / (sample * 2) >= reqHeight) {
+      sample *= 2;
+    }
+    return sample;
+  }
+
+  /** The size an icon bound to the view is decoded for. */
+  static int targetDimension(ImageView view, boolean horizontal) {
+    ViewGroup.LayoutParams params = view.getLayoutParams();
+    int size = 0;
+    if (params != null) {
+      size = horizontal ? params.width : params.height;
+    }
+    if (size <= 0) {
+      size = horizontal ? view.getWidth() : view.getHeight();
+    }
+    return size;
+  }
+
+  private class Request implements Runnable {
+    private final WeakReference<ImageView> viewRef;
+    private final String format;
+    private final byte[] data;
+    private final int width;
+    private final int height;
+
+    Request(ImageView view, String format, byte[] data, int width, int height) {
+      viewRef = new WeakReference<ImageView>(view);
+      this.format = format;
+      this.data = data;
+      this.width = width;
+      this.height = height;
+    }
+
+    private boolean isCurrent() {
+      ImageView view = viewRef.get();
+      return view != null && view.getTag() == this;
+    }
+
+    /**
+     * Drop this request without decoding.  The view keeps its placeholder
+     * and loses the tag, so the next bind requests the icon again.  Runs
+     * in the UI thread, from {@link #load}.
+     */
+    void abandon() {
+      if (isCurrent()) {
+        viewRef.get().setTag(null);
+      }
+    }
+
+    @Override
+    public void run() {
+      if (!isCurrent()) {
+        return;
+      }
+      final Bitmap result = getBitmap(format, data, width, height);
+      if (result == null) {
+        return;
+      }
+      handler.post(new Runnable() {
+          @Override
+          public void run() {
+            if (isCurrent()) {
+              ImageView view = viewRef.get();
+              view.setTag(null);
+              view.setImageBitmap(result);
+            }
+          }});
+    }
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Installation messages, shown as a list.  One thread appends lines
+ * through a fixed-size lock-free queue; the UI thread moves them into a
+ * fixed-size ring of the most recent lines at most once per frame, so a
+ * long install costs neither more memory nor more time per frame.  Lines
+ * that arrive while the queue is full are dropped and counted.
+ */
+public class InstallLog extends BaseAdapter {
+  /** Lines waiting for the UI thread; a power of two. */
+  public static final int QUEUE_CAPACITY = 256;
+  /** Most recent lines kept for display. */
+  public static final int MAX_LINES = 500;
+
+  // Single producer, single consumer: the appending thread fills a slot
+  // and then advances tail, the UI thread empties slots and then advances
+  // head.
+  private final AtomicReferenceArray<String> queue = new AtomicReferenceArray<String>(QUEUE_CAPACITY);
+  private final AtomicLong head = new AtomicLong();
+  private final AtomicLong tail = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicBoolean flushScheduled = new AtomicBoolean();
+  private volatile long lastFlush;
+
+  // Ring of the lines on display, oldest at first; UI thread only.
+  private final String[] lines = new String[MAX_LINES];
+  private int first;
+  private int count;
+  private long trimmed;
+  private TextView droppedView;
+
+  private final LayoutInflater inflater;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+
+  private final Runnable flush = new Runnable() {
+      @Override
+      public void run() {
+        flushScheduled.set(false);
+        lastFlush = SystemClock.uptimeMillis();
+        if (drain(true) > 0) {
+          notifyDataSetChanged();
+        }
+        showDropped();
+      }};
+
+  public InstallLog(Context c) {
+    inflater = (LayoutInflater) c.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+  }
+
+  /**
+   * Add a line.  Must only be called from one thread at a time; never
+   * blocks.
+   */
+  public void append(String line) {
+    long t = tail.get();
+    if (t - head.get() >= QUEUE_CAPACITY) {
+      dropped.incrementAndGet();
+    } else {
+      queue.lazySet((int) (t & (QUEUE_CAPACITY - 1)), line);
+      tail.lazySet(t + 1);
+    }
+    if (flushScheduled.compareAndSet(false, true)) {
+      handler.postAtTime(flush, Math.max(SystemClock.uptimeMillis(), lastFlush + UiDispatcher.FRAME_MILLIS));
+    }
+  }
+
+  /**
+   * Clear the log and start it with the given line.  Must be run in the UI
+   * thread.
+   */
+  public void reset(String line) {
+    drain(false);
+    first = 0;
+    count = 0;
+    trimmed = 0;
+    dropped.set(0);
+    addLine(line);
+    notifyDataSetChanged();
+    showDropped();
+  }
+
+  /**
+   * Show the number of lines that are not in the list in the given view,
+   * hidden while there are none.  Must be run in the UI thread.
+   */
+  public void setDroppedView(TextView view) {
+    droppedView = view;
+    showDropped();
+  }
+
+  /** Lines lost because the UI thread fell behind. */
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  /** Lines pushed out of the list by newer ones. */
+  public long getTrimmedCount() {
+    return trimmed;
+  }
+
+  private int drain(boolean keep) {
+    long h = head.get();
+    long t = tail.get();
+    for (long i = h; i < t; i++) {
+      int slot = (int) (i & (QUEUE_CAPACITY - 1));
+      String line = queue.get(slot);
+      queue.lazySet(slot, null);
+      if (keep) {
+        addLine(line);
+      }
+    }
+    head.lazySet(t);
+    return (int) (t - h);
+  }
+
+  private void addLine(String line) {
+    if (count < MAX_LINES) {
+      lines[(first + count) % MAX_LINES] = line;
+      count++;
+    } else {
+      lines[first] = line;
+      first = (first + 1) % MAX_LINES;
+      trimmed++;
+    }
+  }
+
+  private void showDropped() {
+    if (droppedView == null) {
+      return;
+    }
+    long lost = dropped.get();
+    if (trimmed + lost == 0) {
+      droppedView.setVisibility(View.GONE);
+      return;
+    }
+    String text = (trimmed + lost) + " lines not shown";
+    if (lost > 0) {
+      text += " (" + lost + " dropped)";
+    }
+    droppedView.setText(text);
+    droppedView.setVisibility(View.VISIBLE);
+  }
+
+  @Override
+  public int getCount() {
+    return count;
+  }
+
+  @Override
+  public String getItem(int position) {
+    return lines[(first + position) % MAX_LINES];
+  }
+
+  @Override
+  public long getItemId(int position) {
+    return position;
+  }
+
+  @Override
+  public View getView(int position, View convertView, ViewGroup parent) {
+    TextView view = (TextView) convertView;
+    if (view == null) {
+      view = (TextView) inflater.inflate(R.layout.install_log_line, parent, false);
+    }
+    view.setText(getItem(position));
+    return view;
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import org.ros.message.app_manager.App;
+
+/**
+ * Turns taps on apps into launches, at most one per user intent.  A
+ * selection fires at once; repeated taps on an app that was just launched
+ * or is still starting are dropped; and while one launch is waiting on the
+ * robot, the latest new selection waits for it instead of starting a
+ * second robot app alongside, replacing any selection that was already
+ * waiting.
+ *
+ * All methods except {@link #finished} must be called in the UI thread.
+ * The launch target reports the start requests it sends with
+ * {@link #starting} and their answers with {@link #finished}.
+ */
+public class LaunchCoordinator {
+  /** Taps on the app launched last are ignored for this long. */
+  public static final long REPEAT_MILLIS = 1000;
+
+  /** Performs a launch; called in the UI thread. */
+  public interface Target {
+    void launch(App app);
+  }
+
+  private final Target target;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private App pending;
+  private String inFlight;
+  private String lastFired;
+  private long lastFiredAt;
+  private int fired;
+  private int debounced;
+  private int superseded;
+
+  private final Runnable fire = new Runnable() {
+      @Override
+      public void run() {
+        if (pending == null || inFlight != null) {
+          return;
+        }
+        App app = pending;
+        pending = null;
+        lastFired = app.name;
+        lastFiredAt = SystemClock.uptimeMillis();
+        fired++;
+        target.launch(app);
+      }};
+
+  public LaunchCoordinator(Target target) {
+    this.target = target;
+  }
+
+  /**
+   * Select an app to launch, starting its launch trace.  Returns false if
+   * the tap was dropped as a repeat of the current launch.
+   */
+  public boolean select(App app) {
+    long now = SystemClock.uptimeMillis();
+    if (app.name.equals(inFlight) || (pending != null && app.name.equals(pending.name))
+        || (app.name.equals(lastFired) && now - lastFiredAt < REPEAT_MILLIS)) {
+      debounced++;
+      return false;
+    }
+    if (pending != null) {
+      Log.i("RosAndroid", "launch of " + pending.name + " superseded by " + app.name);
+      superseded++;
+    }
+    pending = app;
+    LaunchMetrics.getInstance().begin(app.name);
+    handler.removeCallbacks(fire);
+    fire.run();
+    return true;
+  }
+
+  /** Report that a start request for the given app was sent to the robot. */
+  public void starting(String appName) {
+    inFlight = appName;
+  }
+
+  /**
+   * Report that the robot answered the start of the given app, letting a
+   * selection that waited on it fire.  May be called from any thread.
+   */
+  public void finished(final String appName) {
+    handler.post(new Runnable() {
+        @Override
+        public void run() {
+          if (appName.equals(inFlight)) {
+            inFlight = null;
+            if (pending != null) {
+              handler.post(fire);
+            }
+          }
+        }});
+  }
+
+  /** Drop any selection that has not fired yet. */
+  public void cancel() {
+    if (pending != null) {
+      superseded++;
+      pending = null;
+    }
+    handler.removeCallbacks(fire);
+  }
+
+  @Override
+  public String toString() {
+    return "fired=" + fired + ", debounced=" + debounced + ", superseded=" + superseded;
+  }
+}
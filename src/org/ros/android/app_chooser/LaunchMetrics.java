@@ -0,0 +1,201 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-process registry of app launch latencies.  A trace is started when the
+ * user taps an app and every stage of the launch records the time elapsed
+ * since the tap, measured with the monotonic System.nanoTime() clock, into
+ * a histogram for that stage.
+ */
+public class LaunchMetrics {
+  private static final String TAG = "LaunchMetrics";
+
+  public static final String TAP_TO_LAUNCH = "tap_to_launch";
+  public static final String TAP_TO_START_REQUESTED = "tap_to_start_requested";
+  public static final String TAP_TO_STARTED = "tap_to_started";
+  public static final String TAP_TO_INTENT = "tap_to_intent";
+  public static final String TAP_TO_START_ACTIVITY = "tap_to_start_activity";
+  public static final String TAP_TO_CLIENT_VISIBLE = "tap_to_client_visible";
+
+  private static LaunchMetrics instance;
+
+  private final LinkedHashMap<String, Histogram> histograms = new LinkedHashMap<String, Histogram>();
+  private Trace current;
+
+  public static synchronized LaunchMetrics getInstance() {
+    if (instance == null) {
+      instance = new LaunchMetrics();
+    }
+    return instance;
+  }
+
+  /** Start tracing a launch of the given app, replacing any open trace. */
+  public synchronized Trace begin(String appName) {
+    current = new Trace(appName);
+    return current;
+  }
+
+  /**
+   * Record a stage of the current launch if it is a launch of the given
+   * app.  Stages are only recorded once per trace.
+   */
+  public void mark(String appName, String stage) {
+    Trace trace;
+    synchronized (this) {
+      trace = current;
+    }
+    if (trace != null && trace.appName.equals(appName)) {
+      trace.mark(stage);
+    }
+  }
+
+  /**
+   * If the current launch has reached requiredStage, record finalStage and
+   * close the trace.
+   */
+  public void finish(String requiredStage, String finalStage) {
+    Trace trace;
+    synchronized (this) {
+      trace = current;
+      if (trace == null || !trace.reached(requiredStage)) {
+        return;
+      }
+      current = null;
+    }
+    trace.mark(finalStage);
+  }
+
+  public synchronized void record(String metric, long nanos) {
+    Histogram histogram = histograms.get(metric);
+    if (histogram == null) {
+      histogram = new Histogram();
+      histograms.put(metric, histogram);
+    }
+    histogram.add(nanos);
+  }
+
+  /** One line per metric with count and percentiles in milliseconds. */
+  public synchronized String summary() {
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<String, Histogram> e : histograms.entrySet()) {
+      Histogram h = e.getValue();
+      sb.append(e.getKey()).append(": n=").append(h.count())
+        .append(" p50=").append(millis(h.percentile(50)))
+        .append(" p90=").append(millis(h.percentile(90)))
+        .append(" p99=").append(millis(h.percentile(99)))
+        .append(" max=").append(millis(h.percentile(100)))
+        .append("ms\n");
+    }
+    return sb.toString();
+  }
+
+  public void dump(File file) throws IOException {
+    PrintWriter out = new PrintWriter(new FileWriter(file));
+    try {
+      out.print(summary());
+    } finally {
+      out.close();
+    }
+  }
+
+  private static String millis(long nanos) {
+    return String.valueOf(nanos / 1000000.0);
+  }
+
+  /** Timing of one launch, from tap to client app visible. */
+  public class Trace {
+    private final String appName;
+    private final long start;
+    private final LinkedHashMap<String, Long> stages = new LinkedHashMap<String, Long>();
+
+    private Trace(String appName) {
+      this.appName = appName;
+      start = System.nanoTime();
+    }
+
+    public void mark(String stage) {
+      long elapsed = System.nanoTime() - start;
+      synchronized (this) {
+        if (stages.containsKey(stage)) {
+          return;
+        }
+        stages.put(stage, elapsed);
+      }
+      record(stage, elapsed);
+      Log.i(TAG, appName + " " + stage + " " + millis(elapsed) + "ms");
+    }
+
+    public synchronized boolean reached(String stage) {
+      return stages.containsKey(stage);
+    }
+  }
+
+  /** Bounded reservoir of the most recent samples of one metric. */
+  private static class Histogram {
+    private static final int CAPACITY = 512;
+    private final long[] samples = new long[CAPACITY];
+    private int count;
+
+    void add(long value) {
+      samples[count % CAPACITY] = value;
+      count++;
+    }
+
+    int count() {
+      return count;
+    }
+
+    long percentile(int p) {
+      int n = Math.min(count, CAPACITY);
+      if (n == 0) {
+        return 0;
+      }
+      long[] sorted = Arrays.copyOf(samples, n);
+      Arrays.sort(sorted);
+      int index = (int) Math.ceil(p / 100.0 * n) - 1;
+      return sorted[Math.max(0, Math.min(n - 1, index))];
+    }
+  }
+}
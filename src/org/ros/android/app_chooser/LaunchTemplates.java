@@ -0,0 +1,156 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import org.ros.message.app_manager.App;
+import org.ros.message.app_manager.ClientApp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Compiled launch data for the client apps of each robot app, rebuilt
+ * whenever the app list changes so a tap only has to copy a prepared
+ * intent.
+ */
+public class LaunchTemplates {
+  private static LaunchTemplates instance;
+
+  private HashMap<String, List<ClientAppData>> templates = new HashMap<String, List<ClientAppData>>();
+
+  public static synchronized LaunchTemplates getInstance() {
+    if (instance == null) {
+      instance = new LaunchTemplates();
+    }
+    return instance;
+  }
+
+  /**
+   * Compile the android client apps of every given app.  Returns all
+   * compiled client apps, to be handed to a ClientPackageResolver.
+   */
+  public List<ClientAppData> compile(List<App> apps) {
+    HashMap<String, List<ClientAppData>> previous;
+    synchronized (this) {
+      previous = templates;
+    }
+    HashMap<String, List<ClientAppData>> compiled = new HashMap<String, List<ClientAppData>>();
+    ArrayList<ClientAppData> all = new ArrayList<ClientAppData>();
+    for (int i = 0; i < apps.size(); i++) {
+      App app = apps.get(i);
+      List<ClientAppData> clients = compile(app);
+      carryOverResolutions(previous.get(app.name), clients);
+      compiled.put(app.name, clients);
+      all.addAll(clients);
+    }
+    synchronized (this) {
+      templates = compiled;
+    }
+    return all;
+  }
+
+  /**
+   * Whether a client app of the given app is installed: TRUE if one is,
+   * FALSE if all have been resolved and none is, null if not known yet or
+   * if the app has no android client.
+   */
+  public Boolean isInstalled(App app) {
+    List<ClientAppData> clients;
+    synchronized (this) {
+      clients = templates.get(app.name);
+    }
+    if (clients == null || clients.isEmpty()) {
+      return null;
+    }
+    boolean allResolved = true;
+    for (ClientAppData client : clients) {
+      if (!client.isResolved()) {
+        allResolved = false;
+      } else if (client.isInstalled()) {
+        return Boolean.TRUE;
+      }
+    }
+    return allResolved ? Boolean.FALSE : null;
+  }
+
+  /**
+   * Return the compiled android client apps of the app, compiling and
+   * keeping them now if the app was not part of the last compiled list.
+   */
+  public List<ClientAppData> get(App app) {
+    List<ClientAppData> clients;
+    synchronized (this) {
+      clients = templates.get(app.name);
+    }
+    if (clients != null) {
+      return clients;
+    }
+    clients = compile(app);
+    synchronized (this) {
+      List<ClientAppData> raced = templates.get(app.name);
+      if (raced != null) {
+        return raced;
+      }
+      templates.put(app.name, clients);
+    }
+    return clients;
+  }
+
+  private static void carryOverResolutions(List<ClientAppData> previous, List<ClientAppData> clients) {
+    if (previous == null) {
+      return;
+    }
+    for (ClientAppData client : clients) {
+      for (ClientAppData old : previous) {
+        if (old.getResolutionKey().equals(client.getResolutionKey())) {
+          client.copyResolution(old);
+          break;
+        }
+      }
+    }
+  }
+
+  private static List<ClientAppData> compile(App app) {
+    ArrayList<ClientAppData> clients = new ArrayList<ClientAppData>();
+    for (int i = 0; i < app.client_apps.size(); i++) {
+      ClientApp client = app.client_apps.get(i);
+      if (AppLauncher.CLIENT_TYPE.equals(client.client_type)) {
+        clients.add(new ClientAppData(client));
+      }
+    }
+    return Collections.unmodifiableList(clients);
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the independent steps of an activity's node setup concurrently and
+ * logs how long each one took, both on its own and since the bootstrap
+ * started.
+ */
+public class NodeBootstrap {
+  private static final String TAG = "NodeBootstrap";
+  private static final ExecutorService executor = Executors.newCachedThreadPool();
+
+  private final String name;
+  private final long start;
+
+  /** A step whose end is signalled from elsewhere, e.g. a service callback. */
+  public class Step {
+    private final String step;
+    private final long stepStart;
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    private Step(String step) {
+      this.step = step;
+      stepStart = System.nanoTime();
+    }
+
+    /** Record the end of the step; only the first call counts. */
+    public void done() {
+      if (done.compareAndSet(false, true)) {
+        finish(step, stepStart);
+      }
+    }
+  }
+
+  public NodeBootstrap(String name) {
+    this.name = name;
+    start = System.nanoTime();
+  }
+
+  /** Run a blocking step on a worker thread. */
+  public void run(final String step, final Runnable work) {
+    executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          long stepStart = System.nanoTime();
+          try {
+            work.run();
+          } catch (RuntimeException e) {
+            Log.e(TAG, name + " step " + step + " failed", e);
+          }
+          finish(step, stepStart);
+        }});
+  }
+
+  /** Start timing a step that completes asynchronously. */
+  public Step begin(String step) {
+    return new Step(step);
+  }
+
+  private void finish(String step, long stepStart) {
+    long now = System.nanoTime();
+    Log.i(TAG, name + " " + step + ": " + (now - stepStart) / 1000000 + "ms, "
+          + (now - start) / 1000000 + "ms since node create");
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.util.Log;
+import org.ros.exception.RemoteException;
+import org.ros.node.service.ServiceResponseListener;
+
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs service calls to one robot with a deadline per call, retries
+ * idempotent calls with jittered exponential backoff, and stops calling
+ * the robot for a while after several calls in a row could not reach it,
+ * failing new calls immediately with a {@link CircuitOpenException}
+ * instead.  Only timeouts and transport failures count; an error reply
+ * means the robot is answering.
+ */
+public class RobotCallScheduler {
+  private static final String TAG = "RobotCallScheduler";
+  private static final int MAX_ATTEMPTS = 3;
+  private static final long BASE_BACKOFF_MILLIS = 250;
+  private static final long MAX_BACKOFF_MILLIS = 4000;
+  private static final int FAILURE_THRESHOLD = 3;
+  private static final long OPEN_MILLIS = 5000;
+
+  private static final ScheduledExecutorService timer =
+      Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory(TAG));
+
+  /** Thrown to callers while the robot is considered unreachable. */
+  public static class CircuitOpenException extends RemoteException {
+    public CircuitOpenException(String message) {
+      super(message);
+    }
+  }
+
+  private final Random random = new Random();
+  private int consecutiveFailures;
+  private long openUntil;
+
+  /**
+   * Run the call.  The listener gets exactly one callback: the first
+   * success, or the last failure once retries are used up.
+   */
+  public <T> void submit(String name, CoalescingAppManager.Call<T> call, boolean idempotent,
+                         long deadlineMillis, boolean counted, ServiceResponseListener<T> listener) {
+    submit(name, call, idempotent, deadlineMillis, true, listener);
+  }
+
+  /**
+   * As above, but when counted is false a failure of the call never
+   * opens the circuit; for background work the user did not ask for.
+   */
+  public <T> void submit(String name, CoalescingAppManager.Call<T> call, boolean idempotent,
+                         long deadlineMillis, boolean counted, ServiceResponseListener<T> listener) {
+    attempt(new Request<T>(name, call, idempotent, deadlineMillis, counted, listener), 1);
+  }
+
+  /** True while calls are being failed fast. */
+  public synchronized boolean isOpen() {
+    return System.currentTimeMillis() < openUntil;
+  }
+
+  private static class Request<T> {
+    final String name;
+    final CoalescingAppManager.Call<T> call;
+    final boolean idempotent;
+    final long deadlineMillis;
+    final boolean counted;
+    final ServiceResponseListener<T> listener;
+
+    Request(String name, CoalescingAppManager.Call<T> call, boolean idempotent,
+            long deadlineMillis, boolean counted, ServiceResponseListener<T> listener) {
+      this.name = name;
+      this.call = call;
+      this.idempotent = idempotent;
+      this.deadlineMillis = deadlineMillis;
+      this.counted = counted;
+      this.listener = listener;
+    }
+  }
+
+  private <T> void attempt(final Request<T> request, final int attempt) {
+    if (isOpen()) {
+      request.listener.onFailure(new CircuitOpenException("robot unreachable, not calling " + request.name));
+      return;
+    }
+    final AtomicBoolean done = new AtomicBoolean();
+    final ScheduledFuture<?> deadline = timer.schedule(new Runnable() {
+        @Override
+        public void run() {
+          if (done.compareAndSet(false, true)) {
+            failed(request, attempt, new RemoteException(
+                request.name + " timed out after " + request.deadlineMillis + "ms"), true);
+          }
+        }}, request.deadlineMillis, TimeUnit.MILLISECONDS);
+    try {
+      request.call.invoke(new ServiceResponseListener<T>() {
+          @Override
+          public void onSuccess(T response) {
+            if (done.compareAndSet(false, true)) {
+              deadline.cancel(false);
+              reachable();
+              request.listener.onSuccess(response);
+            }
+          }
+
+          @Override
+          public void onFailure(RemoteException e) {
+            if (done.compareAndSet(false, true)) {
+              deadline.cancel(false);
+              reachable();
+              failed(request, attempt, e, false);
+            }
+          }});
+    } catch (RuntimeException e) {
+      if (done.compareAndSet(false, true)) {
+        deadline.cancel(false);
+        failed(request, attempt, new RemoteException(request.name + " failed: " + e.getMessage()), true);
+      } else {
+        throw e;
+      }
+    }
+  }
+
+  private synchronized void reachable() {
+    if (consecutiveFailures >= FAILURE_THRESHOLD) {
+      Log.i(TAG, "robot reachable again");
+    }
+    consecutiveFailures = 0;
+    openUntil = 0;
+  }
+
+  /**
+   * Retry the attempt if allowed, otherwise report the failure, counting
+   * it once for the whole call if the robot could not be reached.
+   */
+  private <T> void failed(final Request<T> request, final int attempt, RemoteException e,
+                          boolean unreachable) {
+    if (request.idempotent && attempt < MAX_ATTEMPTS && !isOpen()) {
+      long backoff = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << (attempt - 1));
+      long delay;
+      synchronized (random) {
+        delay = backoff / 2 + (long) (random.nextDouble() * backoff);
+      }
+      Log.i(TAG, request.name + " failed (" + e.getMessage() + "), retry " + attempt + " in " + delay + "ms");
+      timer.schedule(new Runnable() {
+          @Override
+          public void run() {
+            attempt(request, attempt + 1);
+          }}, delay, TimeUnit.MILLISECONDS);
+      return;
+    }
+    if (unreachable && request.counted) {
+      synchronized (this) {
+        consecutiveFailures++;
+        if (consecutiveFailures >= FAILURE_THRESHOLD) {
+          openUntil = System.currentTimeMillis() + OPEN_MILLIS;
+          Log.w(TAG, consecutiveFailures + " calls in a row failed, failing fast for " + OPEN_MILLIS + "ms");
+        }
+      }
+    }
+    request.listener.onFailure(e);
+  }
+}
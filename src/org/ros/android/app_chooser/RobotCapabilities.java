@@ -0,0 +1,114 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * What a robot's app manager is known to support, cached per robot so the
+ * chooser can pick a launch strategy locally instead of learning it from a
+ * failed startApp.
+ *
+ * The app manager has no service that reports its capabilities, so they
+ * are learned from what it does: a list with more than one running app
+ * shows multi-app mode is on, and a MULTIAPP_NOT_SUPPORTED reply shows it
+ * is off.  Knowledge survives reconnects to the same robot and is corrected
+ * by the next piece of contrary evidence.
+ */
+public class RobotCapabilities {
+  public enum Support { UNKNOWN, SUPPORTED, UNSUPPORTED }
+
+  private static final Map<String, RobotCapabilities> byRobot =
+      new HashMap<String, RobotCapabilities>();
+
+  private final String robotKey;
+  private volatile Support multiApp = Support.UNKNOWN;
+
+  private RobotCapabilities(String robotKey) {
+    this.robotKey = robotKey;
+  }
+
+  /**
+   * The capabilities of the given robot.  A null key (no current robot)
+   * gets a throwaway instance that knows nothing.
+   */
+  public static synchronized RobotCapabilities forRobot(String robotKey) {
+    if (robotKey == null) {
+      return new RobotCapabilities(null);
+    }
+    RobotCapabilities capabilities = byRobot.get(robotKey);
+    if (capabilities == null) {
+      capabilities = new RobotCapabilities(robotKey);
+      byRobot.put(robotKey, capabilities);
+    }
+    return capabilities;
+  }
+
+  public Support getMultiApp() {
+    return multiApp;
+  }
+
+  /** Record the number of apps the robot reports as running at once. */
+  public void observeRunning(int runningCount) {
+    if (runningCount > 1) {
+      setMultiApp(Support.SUPPORTED);
+    }
+  }
+
+  /** Record that the robot refused to start an app next to a running one. */
+  public void observeMultiAppRefused() {
+    setMultiApp(Support.UNSUPPORTED);
+  }
+
+  /**
+   * Whether starting an app while others run needs them stopped first.
+   * Unknown support counts as unsupported only if assumeUnsupported is
+   * set.
+   */
+  public boolean needsStopBeforeStart(boolean assumeUnsupported) {
+    Support support = multiApp;
+    return support == Support.UNSUPPORTED
+        || (support == Support.UNKNOWN && assumeUnsupported);
+  }
+
+  private void setMultiApp(Support support) {
+    if (multiApp != support) {
+      Log.i("RosAndroid", "robot " + robotKey + " multi-app: " + support);
+      multiApp = support;
+    }
+  }
+}
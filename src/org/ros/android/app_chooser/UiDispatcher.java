@@ -0,0 +1,200 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.app.Dialog;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Delivers an activity's UI events to the UI thread through one ordered
+ * queue.  Events are pooled Messages of a few fixed types rather than a new
+ * Runnable each, and a status event that is queued right behind another
+ * replaces it instead of queueing a second one.  Other events never
+ * overtake each other.
+ *
+ * Lists are paced instead: only the most recent pending list is kept, and
+ * it is applied no sooner than one frame after the previous one, so a
+ * burst of robot updates turns into one redraw per frame whatever else is
+ * queued in between.
+ *
+ * The posting methods may be called from any thread.
+ */
+public class UiDispatcher<L, D> extends Handler {
+  /**
+   * Receives the events in the UI thread.  Lists are of type L, detail
+   * updates of type D; activities without details can ignore them.
+   */
+  public abstract static class Sink<L, D> {
+    public abstract void showStatus(String status);
+
+    public abstract void showAlert(String title, String message);
+
+    public abstract void showList(L list);
+
+    public void showDetails(D details) {
+    }
+  }
+
+  private static final int STATUS = 1;
+  private static final int DISMISS = 2;
+  private static final int ALERT = 3;
+  private static final int LIST = 4;
+  private static final int DETAILS = 5;
+  /** Minimum interval between two applied lists, about one frame at 60Hz. */
+  public static final long FRAME_MILLIS = 16;
+
+  private final Sink<L, D> sink;
+  // Newest queued event that has not been handled yet, or null.
+  private Message tail;
+  private int posted;
+  private int coalesced;
+  private final AtomicReference<L> pendingList = new AtomicReference<L>();
+  private final AtomicInteger listsReceived = new AtomicInteger();
+  private final AtomicInteger listsApplied = new AtomicInteger();
+  private final AtomicInteger listsDropped = new AtomicInteger();
+  private volatile long lastListApplied;
+
+  public UiDispatcher(Sink<L, D> sink) {
+    super(Looper.getMainLooper());
+    this.sink = sink;
+  }
+
+  public void status(String status) {
+    post(STATUS, status, true);
+  }
+
+  /** Dismiss the given dialog, if it is not null. */
+  public void dismiss(Dialog dialog) {
+    if (dialog != null) {
+      post(DISMISS, dialog, false);
+    }
+  }
+
+  public void alert(String title, String message) {
+    post(ALERT, new String[] { title, message }, false);
+  }
+
+  /** Queue a detail update; never merged with other events. */
+  public void details(D details) {
+    post(DETAILS, details, false);
+  }
+
+  /**
+   * Queue a list, replacing any list that has not been applied yet.
+   */
+  public void list(L list) {
+    listsReceived.incrementAndGet();
+    if (pendingList.getAndSet(list) != null) {
+      // A drain is already scheduled and will pick up this list instead.
+      listsDropped.incrementAndGet();
+      return;
+    }
+    long now = SystemClock.uptimeMillis();
+    sendMessageAtTime(obtainMessage(LIST), Math.max(now, lastListApplied + FRAME_MILLIS));
+  }
+
+  private synchronized void post(int what, Object arg, boolean coalesce) {
+    posted++;
+    if (coalesce && tail != null && tail.what == what) {
+      tail.obj = arg;
+      coalesced++;
+      return;
+    }
+    tail = obtainMessage(what, arg);
+    sendMessage(tail);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void handleMessage(Message message) {
+    Object arg;
+    synchronized (this) {
+      if (tail == message) {
+        tail = null;
+      }
+      arg = message.obj;
+    }
+    switch (message.what) {
+      case STATUS:
+        sink.showStatus((String) arg);
+        break;
+      case DISMISS:
+        ((Dialog) arg).dismiss();
+        break;
+      case ALERT:
+        String[] alert = (String[]) arg;
+        sink.showAlert(alert[0], alert[1]);
+        break;
+      case LIST:
+        L list = pendingList.getAndSet(null);
+        if (list != null) {
+          lastListApplied = SystemClock.uptimeMillis();
+          listsApplied.incrementAndGet();
+          sink.showList(list);
+        }
+        break;
+      case DETAILS:
+        sink.showDetails((D) arg);
+        break;
+      default:
+        Log.e("RosAndroid", "unknown UI event " + message.what);
+    }
+  }
+
+  public int getListsReceived() {
+    return listsReceived.get();
+  }
+
+  public int getListsApplied() {
+    return listsApplied.get();
+  }
+
+  public int getListsDropped() {
+    return listsDropped.get();
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "posted=" + posted + ", coalesced=" + coalesced
+        + ", lists received=" + listsReceived.get() + ", applied=" + listsApplied.get()
+        + ", dropped=" + listsDropped.get();
+  }
+}